@@ -20,14 +20,28 @@ import org.ros.nxt_ros_java.NxtJavaHandler;
 
 public class DriveUntilObstacle {
 	public static void main(String[] argv) throws Exception {
-		NxtJavaHandler nxth = new NxtJavaHandler(argv);
+		final NxtJavaHandler nxth = new NxtJavaHandler(argv);
 		System.out.println("Warte auf Initialisierung ....");
 		nxth.warteAufInitialisierung();
 		System.out.println("Initialisierung abgeschlossen done");
-		while(nxth.leseDistanz()>0.3){
-			nxth.bewegeZweiMotoren("b", "c", 200, 1);
-		}
+		nxth.aktiviereHindernisStopp(0.3);
+		// 20 mal pro Sekunde prüfen; jeder Schritt verlängert die Fahrt um
+		// 200 ms, sodass die Motoren ausgehen, falls die Schleife hängt
+		ControlLoop schleife = new ControlLoop("DriveUntilObstacle", 20,
+				new ControlLoop.Step() {
+					@Override
+					public boolean step() {
+						if (nxth.leseDistanzGeglaettet(5) < 0.3) {
+							return false;
+						}
+						nxth.starteZweiMotoren("b", "c", 200, 1);
+						return true;
+					}
+				});
+		schleife.run();
+		nxth.stoppeMotoren();
 		System.out.println("Hindernis gesehen!");
+		System.out.println(schleife);
 
 	}
 }
\ No newline at end of file
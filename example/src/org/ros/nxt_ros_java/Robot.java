@@ -1,10 +1,11 @@
 package org.ros.nxt_ros_java;
 
 import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 
 import org.ros.internal.loader.CommandLineLoader;
-import org.ros.node.DefaultNodeMainExecutor;
 import org.ros.node.NodeConfiguration;
 import org.ros.node.NodeMainExecutor;
 
@@ -40,39 +41,38 @@ public class Robot {
 	 * Standardfarben, die vom NXT-Farbsensor erkannt werden.
 	 */
 	public static enum Farbe {
-		SCHWARZ(0, 0, 0), WEISS(1, 1, 1), ROT(1, 0, 0), GRUEN(0, 1, 0), BLAU(0,
-				0, 1), GELB(1, 1, 0), UNGUELTIG(0, 0, 0);
+		SCHWARZ, WEISS, ROT, GRUEN, BLAU, GELB, UNGUELTIG;
 
-		private float rotAnteil;
-		private float gruenAnteil;
-		private float blauAnteil;
+		private static final Farbe[] STANDARDFARBEN = new Farbe[NxtJavaHandler.Farbe
+				.values().length];
 
-		private Farbe(final float pRotAnteil, final float pGruenAnteil,
-				final float pBlauAnteil) {
-			this.rotAnteil = pRotAnteil;
-			this.gruenAnteil = pGruenAnteil;
-			this.blauAnteil = pBlauAnteil;
+		static {
+			for (final NxtJavaHandler.Farbe farbe : NxtJavaHandler.Farbe
+					.values()) {
+				STANDARDFARBEN[farbe.ordinal()] = Farbe.valueOf(farbe.name());
+			}
 		}
 
 		/**
-		 * liefert zu einer gegebenen RGB-Farbe die passende Standardfarbe
-		 * zurück, wenn zutreffend. Entspricht die gegebene Farbe keiner der
-		 * Standardfarben, wird der Fehlerwert {@code Farbe.UNGUELTIG}
-		 * zurückgegeben.
+		 * liefert die Standardfarbe, die der Talker beim Empfang der letzten
+		 * Farbnachricht des gegebenen Sensorzustands erkannt hat. Entspricht
+		 * die Farbe keiner der Standardfarben, wird der Fehlerwert
+		 * {@code Farbe.UNGUELTIG} zurückgegeben.
 		 * 
-		 * @param color
-		 *            die einzuordnene RGB-Farbe
-		 * @return eine Standardfarbe, die der gegebenen RGB-Farbe entspricht,
+		 * @param snapshot
+		 *            der Sensorzustand mit der erkannten Farbe
+		 * @return eine Standardfarbe, die der gelesenen RGB-Farbe entspricht,
 		 *         sofern möglich; ansonsten {@code Farbe.UNGUELTIG}
 		 */
-		private static Farbe getFarbe(final Color color) {
-			for (final Farbe farbe : Farbe.values()) {
-				if (color.equals(new Color(farbe.rotAnteil, farbe.gruenAnteil,
-						farbe.blauAnteil))) {
-					return farbe;
-				}
-			}
-			return Farbe.UNGUELTIG;
+		private static Farbe getFarbe(final SensorSnapshot snapshot) {
+			return STANDARDFARBEN[snapshot.getColor().ordinal()];
+		}
+
+		/**
+		 * liefert die entsprechende Farbe des {@link NxtJavaHandler}.
+		 */
+		private NxtJavaHandler.Farbe getStandardfarbe() {
+			return NxtJavaHandler.Farbe.valueOf(this.name());
 		}
 	};
 
@@ -80,12 +80,25 @@ public class Robot {
 	 * Vorhandene Motoren.
 	 */
 	public static enum Motor {
-		A("a"), B("b"), C("c");
+		A("a", MotorPort.A), B("b", MotorPort.B), C("c", MotorPort.C);
 
 		private final String motorName;
 
-		private Motor(final String pMotorName) {
+		private final MotorPort port;
+
+		private Motor(final String pMotorName, final MotorPort pPort) {
 			motorName = pMotorName;
+			port = pPort;
+		}
+
+		/**
+		 * liefert den Port des Motors zurück, über den der Talker ohne
+		 * Zeichenketten kommandiert wird.
+		 * 
+		 * @return der Port des Motors
+		 */
+		private MotorPort getPort() {
+			return port;
 		}
 
 		/**
@@ -130,6 +143,63 @@ public class Robot {
 
 	private final boolean debugMode;
 
+	// Debug-Ausgaben aller Roboter; formatiert und ausgegeben wird im
+	// Hintergrund, damit der DebugModus das Timing der Regelschleifen nicht
+	// verändert. Jeder Roboter schreibt über einen eigenen Kanal, damit die
+	// Abfragen eines Roboters nicht die Meldungen eines anderen unterdrücken
+	private static final DebugLog LOG = new DebugLog(System.out, 1024);
+
+	// Wiederholte Abfragen desselben Sensors werden höchstens so oft
+	// ausgegeben, die übrigen nur gezählt
+	private static final long SENSOR_LOG_INTERVAL_MILLIS = 500;
+
+	private static final int LOG_TALKER = LOG.register(
+			"Talker %sangefordert!", 0);
+	private static final int LOG_RGB_FARBE = sensorLog("Roboter erkennt Farbe %s");
+	private static final int LOG_FARBINTENSITAET = sensorLog("Roboter erkennt FarbIntensität %s");
+	private static final int LOG_HELLIGKEIT = sensorLog("Roboter erkennt Helligkeit %s");
+	private static final int LOG_FARBE = sensorLog("Roboter erkennt Farbe %s");
+	private static final int LOG_BERUEHRUNG = sensorLog("Tastersensor meldet Berührung!");
+	private static final int LOG_KEINE_BERUEHRUNG = sensorLog("Tastersensor meldet keine Berührung!");
+	private static final int LOG_DISTANZ = sensorLog("Roboter meldet Hindernis in %s m Entfernung!");
+	private static final int LOG_SENSOR_ALTER = sensorLog("Sensor %s meldet Alter %.0f ms");
+	private static final int LOG_DREHRATE = sensorLog("Roboter dreht mit %s Grad/s");
+	private static final int LOG_AUSRICHTUNG = sensorLog("Roboter ist um %s Grad ausgerichtet");
+	private static final int LOG_BESCHLEUNIGUNG = sensorLog("Roboter beschleunigt entlang %s mit %s m/s²");
+	private static final int LOG_MOTOR_POSITION = sensorLog("Motor %s steht bei %s Grad");
+	private static final int LOG_MOTOR_GESCHWINDIGKEIT = sensorLog("Motor %s dreht mit %s Grad/s");
+	private static final int LOG_MOTOR_ZUSTAND = sensorLog("Motor %s meldet %s");
+	private static final int LOG_DREHUNG = LOG.register(
+			"Roboter hat sich um %s Grad gedreht: %s", 0);
+	private static final int LOG_DISTANZ_UNTER = LOG.register(
+			"Roboter meldet Hindernis unter %s m Entfernung: %s", 0);
+	private static final int LOG_TASTER_WECHSEL = LOG.register(
+			"Tastersensor meldet Wechsel: %s", 0);
+	private static final int LOG_FARBE_ERKANNT = LOG.register(
+			"Roboter erkennt Farbe %s: %s", 0);
+	private static final int LOG_FARBE_GELERNT = LOG.register(
+			"Roboter lernt Farbe %s: %s", 0);
+	private static final int LOG_DREHE_MOTOR = LOG.register(
+			"Motor %s dreht um %s Grad mit Kraft %s", 0);
+	private static final int LOG_FAHRE_STRECKE = LOG.register(
+			"Motor %s und Motor %s fahren %s cm mit Kraft %s", 0);
+	private static final int LOG_AUFZEICHNUNG = LOG.register(
+			"Aufzeichnung nach %s gestartet!", 0);
+	private static final int LOG_AUFZEICHNUNG_BEENDET = LOG.register(
+			"Aufzeichnung beendet: %.0f Einträge", 0);
+	private static final int LOG_STOPP = LOG.register("Alle Motoren stoppen!",
+			0);
+	private static final int LOG_MOTOR = LOG.register(
+			"Roboter startet Motor %s (%.0f s, %s)", 0);
+	private static final int LOG_ZWEI_MOTOREN = LOG.register(
+			"Roboter startet Motor %s und Motor %s (%.0f s, %s)", 0);
+
+	private static int sensorLog(final String format) {
+		return LOG.register(format, SENSOR_LOG_INTERVAL_MILLIS);
+	}
+
+	private final DebugLog.Channel log = LOG.newChannel();
+
 	/**
 	 * Erstellt einen Roboter mit den Standard-Argumenten für die
 	 * VerbindungsInitialisierung, der sich nicht im DebugModus befindet.
@@ -181,8 +251,7 @@ public class Robot {
 		this.talker = new Talker();
 		System.out.println("Verbindung wird angelegt!");
 		Preconditions.checkState(this.talker != null);
-		final NodeMainExecutor nodeMainExecutor = DefaultNodeMainExecutor
-				.newDefault();
+		final NodeMainExecutor nodeMainExecutor = TalkerFleet.sharedExecutor();
 		nodeMainExecutor.execute(this.talker, nodeConfiguration);
 
 		System.out.println("Warte auf Initalisierung...");
@@ -190,6 +259,41 @@ public class Robot {
 		System.out.println("Initialisierung abgeschlossen!");
 	}
 
+	/**
+	 * Erstellt einen Roboter, der zusammen mit anderen Robotern in dieser JVM
+	 * läuft. Alle Roboter der Flotte teilen sich einen NodeMainExecutor.
+	 * 
+	 * @param flotte
+	 *            die Flotte, die die Verbindungen verwaltet
+	 * @param namensraum
+	 *            der Namensraum des Roboters, z.B. "robot1"
+	 * @param pDebugMode
+	 *            ob der Roboter im DebugModus starten soll
+	 */
+	public Robot(final TalkerFleet flotte, final String namensraum,
+			final boolean pDebugMode) {
+		this.debugMode = pDebugMode;
+		this.talker = flotte.addRobot(namensraum);
+		System.out.println("Warte auf Initalisierung von " + namensraum
+				+ "...");
+		this.talker.waitForNode();
+		System.out.println("Initialisierung abgeschlossen!");
+	}
+
+	/**
+	 * Erstellt einen Roboter für eine bereits vorhandene Talker-Instanz, ohne
+	 * eine Verbindung aufzubauen. Wird von den Benchmarks verwendet.
+	 * 
+	 * @param pTalker
+	 *            die Talker-Instanz, welche die Verbindung verwaltet
+	 * @param pDebugMode
+	 *            ob der Roboter im DebugModus arbeiten soll
+	 */
+	Robot(final Talker pTalker, final boolean pDebugMode) {
+		this.talker = pTalker;
+		this.debugMode = pDebugMode;
+	}
+
 	/**
 	 * liefert die zugrundeliegende Talker-Instanz zurück.
 	 * 
@@ -197,8 +301,7 @@ public class Robot {
 	 */
 	protected Talker getTalkerInstance() {
 		if (debugMode) {
-			System.out.println("Talker " + this.talker.toString()
-					+ "angefordert!");
+			log.log(LOG_TALKER, this.talker);
 		}
 		return this.talker;
 	}
@@ -211,11 +314,11 @@ public class Robot {
 	 * @return Farbwert, den der Farbsensor erkennt, als RGB-Farbewert
 	 */
 	protected Color leseRGBFarbe() {
-		final Color color = new Color((float) this.talker.getColorR(),
-				(float) this.talker.getColorG(),
-				(float) this.talker.getColorB());
+		final SensorSnapshot snapshot = this.talker.snapshot();
+		final Color color = new Color((float) snapshot.getColorR(),
+				(float) snapshot.getColorG(), (float) snapshot.getColorB());
 		if (debugMode) {
-			System.out.println("Roboter erkennt Farbe " + color);
+			log.log(LOG_RGB_FARBE, color);
 		}
 		return color;
 	}
@@ -223,7 +326,7 @@ public class Robot {
 	protected double leseFarbIntensitaet() {
 		final double intensity = this.talker.getColorIntensity();
 		if (debugMode) {
-			System.out.println("Roboter erkennt FarbIntensität " + intensity);
+			log.log(LOG_FARBINTENSITAET, intensity);
 		}
 		return intensity;
 	}
@@ -237,7 +340,25 @@ public class Robot {
 	public double leseHelligkeit() {
 		final double intensity = this.talker.getIntensity();
 		if (debugMode) {
-			System.out.println("Roboter erkennt Helligkeit " + intensity);
+			log.log(LOG_HELLIGKEIT, intensity);
+		}
+		return intensity;
+	}
+
+	/**
+	 * Liefert die vom Lichtsensor gemessene Helligkeit zurück, sofern der
+	 * Messwert nicht älter ist als angegeben.
+	 * 
+	 * @param maxAlterMillis
+	 *            das erlaubte Alter des Messwerts in ms
+	 * @return die vom Lichtsensor gemessene Helligkeit (Wert aus [0.0, 1023.0])
+	 * @throws StaleSensorDataException
+	 *             wenn der Messwert älter ist
+	 */
+	public double leseHelligkeit(final long maxAlterMillis) {
+		final double intensity = this.talker.getIntensity(maxAlterMillis);
+		if (debugMode) {
+			log.log(LOG_HELLIGKEIT, intensity);
 		}
 		return intensity;
 	}
@@ -252,9 +373,30 @@ public class Robot {
 	 *         {@code Farbe.UNGUELTIG}
 	 */
 	public Farbe leseFarbe() {
-		final Farbe farbe = Farbe.getFarbe(this.leseRGBFarbe());
+		final Farbe farbe = Farbe.getFarbe(this.talker.snapshot());
 		if (debugMode) {
-			System.out.println("Roboter erkennt Farbe " + farbe);
+			log.log(LOG_FARBE, farbe);
+		}
+		return farbe;
+	}
+
+	/**
+	 * Liefert die vom Farbsensor gelesene Farbe als Standardfarbe zurück,
+	 * sofern der Messwert nicht älter ist als angegeben.
+	 * 
+	 * @param maxAlterMillis
+	 *            das erlaubte Alter des Messwerts in ms
+	 * @return die vom Farbsensor erkannte Standardfarbe, sofern möglich;
+	 *         ansonsten {@code Farbe.UNGUELTIG}
+	 * @throws StaleSensorDataException
+	 *             wenn der Messwert älter ist
+	 */
+	public Farbe leseFarbe(final long maxAlterMillis) {
+		final SensorSnapshot snapshot = this.talker.snapshot().checkFresh(
+				Sensor.COLOR, maxAlterMillis);
+		final Farbe farbe = Farbe.getFarbe(snapshot);
+		if (debugMode) {
+			log.log(LOG_FARBE, farbe);
 		}
 		return farbe;
 	}
@@ -268,8 +410,25 @@ public class Robot {
 	public boolean leseTaster() {
 		final boolean taster = this.talker.getContact();
 		if (debugMode) {
-			System.out.println("Tastersensor meldet "
-					+ (taster ? "" : "keine ") + "Berührung!");
+			log.log(taster ? LOG_BERUEHRUNG : LOG_KEINE_BERUEHRUNG);
+		}
+		return taster;
+	}
+
+	/**
+	 * Gibt den Zustand des Berührungssensors zurück, sofern der Messwert nicht
+	 * älter ist als angegeben.
+	 * 
+	 * @param maxAlterMillis
+	 *            das erlaubte Alter des Messwerts in ms
+	 * @return {@code true}, wenn der Taster gedrückt ist, sonst {@code false}
+	 * @throws StaleSensorDataException
+	 *             wenn der Messwert älter ist
+	 */
+	public boolean leseTaster(final long maxAlterMillis) {
+		final boolean taster = this.talker.getContact(maxAlterMillis);
+		if (debugMode) {
+			log.log(taster ? LOG_BERUEHRUNG : LOG_KEINE_BERUEHRUNG);
 		}
 		return taster;
 	}
@@ -282,12 +441,293 @@ public class Robot {
 	public double leseDistanz() {
 		final double distanz = this.talker.getRange();
 		if (debugMode) {
-			System.out.println("Roboter meldet Hindernis in " + distanz
-					+ " m Entfernung!");
+			log.log(LOG_DISTANZ, distanz);
 		}
 		return distanz;
 	}
 
+	/**
+	 * Liefert die Distanz des Ultraschallsensors bis zum nächsten Hindernis,
+	 * sofern der Messwert nicht älter ist als angegeben. So fährt der Roboter
+	 * nicht blind weiter, wenn der Sensor keine Nachrichten mehr schickt.
+	 * 
+	 * @param maxAlterMillis
+	 *            das erlaubte Alter des Messwerts in ms
+	 * @return Die Distanz in m.
+	 * @throws StaleSensorDataException
+	 *             wenn der Messwert älter ist
+	 */
+	public double leseDistanz(final long maxAlterMillis) {
+		final double distanz = this.talker.getRange(maxAlterMillis);
+		if (debugMode) {
+			log.log(LOG_DISTANZ, distanz);
+		}
+		return distanz;
+	}
+
+	/**
+	 * Liefert das Alter des letzten Messwerts des gegebenen Sensors.
+	 * 
+	 * @param sensor
+	 *            der Sensor, dessen Messwert geprüft wird
+	 * @return Alter in ms oder {@code Long.MAX_VALUE}, wenn noch kein Messwert
+	 *         eingetroffen ist
+	 */
+	public long leseSensorAlter(final Sensor sensor) {
+		final long alter = this.talker.getStamp(sensor).getAgeMillis();
+		if (debugMode) {
+			log.log(LOG_SENSOR_ALTER, sensor, alter);
+		}
+		return alter;
+	}
+
+	/**
+	 * Liefert die Drehrate des Gyrosensors um die Hochachse.
+	 * 
+	 * @return die Drehrate in Grad pro Sekunde, positiv bei einer
+	 *         Linksdrehung
+	 */
+	public double leseDrehrate() {
+		final double drehrate = Math.toDegrees(this.talker
+				.getAngularVelocity());
+		if (debugMode) {
+			log.log(LOG_DREHRATE, drehrate);
+		}
+		return drehrate;
+	}
+
+	/**
+	 * Liefert die Ausrichtung des Roboters laut Gyrosensor.
+	 * 
+	 * @return die Ausrichtung in Grad seit dem Start des Treibers
+	 */
+	public double leseAusrichtung() {
+		final double ausrichtung = Math.toDegrees(this.talker.getHeading());
+		if (debugMode) {
+			log.log(LOG_AUSRICHTUNG, ausrichtung);
+		}
+		return ausrichtung;
+	}
+
+	/**
+	 * Liefert die Beschleunigung des Roboters entlang der gegebenen Achse.
+	 * 
+	 * @param achse
+	 *            'x', 'y' oder 'z'
+	 * @return die Beschleunigung in m/s²
+	 */
+	public double leseBeschleunigung(final char achse) {
+		final double beschleunigung;
+		switch (achse) {
+		case 'x':
+			beschleunigung = this.talker.getAccelerationX();
+			break;
+		case 'y':
+			beschleunigung = this.talker.getAccelerationY();
+			break;
+		case 'z':
+			beschleunigung = this.talker.getAccelerationZ();
+			break;
+		default:
+			throw new IllegalArgumentException(achse
+					+ " ist keine gültige Achse. Mögliche Achsen: x, y, z");
+		}
+		if (debugMode) {
+			log.log(LOG_BESCHLEUNIGUNG, Character.valueOf(achse), beschleunigung);
+		}
+		return beschleunigung;
+	}
+
+	/**
+	 * Wartet, bis sich der Roboter laut Gyrosensor um den gegebenen Winkel
+	 * gedreht hat.
+	 * 
+	 * @param grad
+	 *            der Winkel in Grad
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return {@code true}, wenn der Winkel erreicht wurde, sonst
+	 *         {@code false}
+	 */
+	public boolean warteAufDrehung(final double grad, final long timeoutMillis) {
+		try {
+			final boolean gedreht = this.talker.awaitRotation(
+					Math.toRadians(grad), timeoutMillis);
+			if (debugMode) {
+				log.log(LOG_DREHUNG, grad, Boolean.valueOf(gedreht));
+			}
+			return gedreht;
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new InterruptedRuntimeException();
+		}
+	}
+
+	/**
+	 * Liefert, um wie viel Grad sich der gegebene Motor seit dem Start des
+	 * Treibers gedreht hat.
+	 *
+	 * @param motor
+	 *            der Motor, dessen Drehwinkel gelesen wird
+	 * @return der Drehwinkel in Grad
+	 */
+	public double leseMotorPosition(final Motor motor) {
+		final double position = this.talker.getJointState(motor.getPort())
+				.getPositionDegrees();
+		if (debugMode) {
+			log.log(LOG_MOTOR_POSITION, motor, position);
+		}
+		return position;
+	}
+
+	/**
+	 * Liefert die Drehgeschwindigkeit des gegebenen Motors.
+	 *
+	 * @param motor
+	 *            der Motor, dessen Geschwindigkeit gelesen wird
+	 * @return die Geschwindigkeit in Grad pro Sekunde
+	 */
+	public double leseMotorGeschwindigkeit(final Motor motor) {
+		final double geschwindigkeit = Math.toDegrees(this.talker
+				.getJointVelocity(motor.getPort()));
+		if (debugMode) {
+			log.log(LOG_MOTOR_GESCHWINDIGKEIT, motor, geschwindigkeit);
+		}
+		return geschwindigkeit;
+	}
+
+	/**
+	 * Liefert den zuletzt gemeldeten Zustand des gegebenen Motors, sofern er
+	 * nicht älter ist als angegeben.
+	 *
+	 * @param motor
+	 *            der Motor, dessen Zustand gelesen wird
+	 * @param maxAlterMillis
+	 *            das erlaubte Alter des Zustands in ms
+	 * @return Drehwinkel, Geschwindigkeit und Stärke des Motors
+	 * @throws StaleSensorDataException
+	 *             wenn der Zustand älter ist
+	 */
+	public JointStateSample leseMotorZustand(final Motor motor,
+			final long maxAlterMillis) {
+		final JointStateSample zustand = this.talker.getJointState(
+				motor.getPort(), maxAlterMillis);
+		if (debugMode) {
+			log.log(LOG_MOTOR_ZUSTAND, motor, zustand);
+		}
+		return zustand;
+	}
+
+	/**
+	 * Wartet, bis der Ultraschallsensor eine Distanz kleiner als die gegebene
+	 * meldet. Während des Wartens wird keine Rechenzeit verbraucht.
+	 * 
+	 * @param distanz
+	 *            die Distanz in m
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return {@code true}, wenn die Distanz unterschritten wurde, sonst
+	 *         {@code false}
+	 */
+	public boolean warteAufDistanzUnter(final double distanz,
+			final long timeoutMillis) {
+		try {
+			final boolean erreicht = this.talker.awaitRangeBelow(distanz,
+					timeoutMillis);
+			if (debugMode) {
+				log.log(LOG_DISTANZ_UNTER, distanz, Boolean.valueOf(erreicht));
+			}
+			return erreicht;
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new InterruptedRuntimeException();
+		}
+	}
+
+	/**
+	 * Wartet, bis der Taster gedrückt oder losgelassen wird.
+	 * 
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return {@code true}, wenn sich der Zustand des Tasters geändert hat,
+	 *         sonst {@code false}
+	 */
+	public boolean warteAufTasterWechsel(final long timeoutMillis) {
+		try {
+			final boolean gewechselt = this.talker
+					.awaitContactChange(timeoutMillis);
+			if (debugMode) {
+				log.log(LOG_TASTER_WECHSEL, gewechselt);
+			}
+			return gewechselt;
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new InterruptedRuntimeException();
+		}
+	}
+
+	/**
+	 * Wartet, bis der Farbsensor die gegebene Standardfarbe erkennt.
+	 * 
+	 * @param farbe
+	 *            die Standardfarbe, auf die gewartet wird
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return {@code true}, wenn die Farbe erkannt wurde, sonst {@code false}
+	 */
+	public boolean warteAufFarbe(final Farbe farbe, final long timeoutMillis) {
+		try {
+			final boolean erkannt = this.talker.awaitCondition(
+					new SensorCondition() {
+						@Override
+						public boolean isSatisfied(final Talker pTalker) {
+							return Farbe.getFarbe(pTalker.snapshot()) == farbe;
+						}
+					}, timeoutMillis);
+			if (debugMode) {
+				log.log(LOG_FARBE_ERKANNT, farbe, erkannt);
+			}
+			return erkannt;
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new InterruptedRuntimeException();
+		}
+	}
+
+	/**
+	 * Lernt, wie die gegebene Standardfarbe am Sensor aussieht. Die Farbe muss
+	 * dazu vor den Sensor gehalten werden, bis die Methode zurückkehrt.
+	 *
+	 * @param farbe
+	 *            die Standardfarbe, die vor dem Sensor liegt
+	 * @param anzahlMessungen
+	 *            aus wie vielen Messungen gemittelt wird
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange auf jede Messung gewartet. Sonst
+	 *            höchstens soviele Millisekunden je Messung.
+	 * @return {@code true}, wenn die Farbe gelernt wurde, sonst {@code false}
+	 */
+	public boolean lerneFarbe(final Farbe farbe, final int anzahlMessungen,
+			final long timeoutMillis) {
+		Preconditions.checkArgument(farbe != Farbe.UNGUELTIG,
+				"UNGUELTIG kann nicht gelernt werden");
+		try {
+			final boolean gelernt = this.talker.calibrateColor(
+					farbe.getStandardfarbe(), anzahlMessungen, timeoutMillis);
+			if (debugMode) {
+				log.log(LOG_FARBE_GELERNT, farbe, gelernt);
+			}
+			return gelernt;
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new InterruptedRuntimeException();
+		}
+	}
+
 	/**
 	 * Bewegt den gegebenen Motor.
 	 * 
@@ -302,7 +742,13 @@ public class Robot {
 	 */
 	public void bewegeMotor(final Motor motor, final int duration,
 			final double effort) {
-		this.bewegeMotor(motor.getMotorName(), duration, effort);
+		motorAusgabe(motor.getMotorName(), duration, effort);
+		try {
+			this.talker.runMotor(motor.getPort(), duration, effort);
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new InterruptedRuntimeException();
+		}
 	}
 
 	/**
@@ -388,8 +834,17 @@ public class Robot {
 	 */
 	public void bewegeZweiMotoren(final Motor motor1, final Motor motor2,
 			final int duration, final double effort) {
-		this.bewegeZweiMotoren(motor1.getMotorName(), motor2.getMotorName(),
-				duration, effort);
+		if (debugMode) {
+			motorAusgabe(motor1.getMotorName(), motor2.getMotorName(),
+					duration, effort);
+		}
+		try {
+			this.talker.runTwoMotors(motor1.getPort(), motor2.getPort(),
+					duration, effort);
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new InterruptedRuntimeException();
+		}
 	}
 
 	/**
@@ -410,7 +865,7 @@ public class Robot {
 			final int duration, final double effort) {
 		motorValidityCheck(motor1);
 		motorValidityCheck(motor2);
-		motorAusgabe(motor1 + " und Motor " + motor2, duration, effort);
+		motorAusgabe(motor1, motor2, duration, effort);
 		try {
 			this.talker.runTwoMotors(motor1, motor2, duration, effort);
 		} catch (final InterruptedException e) {
@@ -419,12 +874,162 @@ public class Robot {
 		}
 	}
 
+	/**
+	 * Startet den gegebenen Motor und kehrt sofort zurück, statt bis zum Ende
+	 * der Bewegung zu blockieren. Ein neues Kommando für denselben Motor
+	 * ersetzt die laufende Bewegung.
+	 * 
+	 * @param motor
+	 *            der Motor, der bewegt werden soll
+	 * @param duration
+	 *            Wenn 0, bewegt sich der Motor unendlich lange. Sonst soviele
+	 *            Millisekunden wie angegeben. Motor rollt danach aus.
+	 * @param effort
+	 *            Die Kraft, mit der sich der Motor bewegen soll. Negatives
+	 *            Vorzeichen dreht den Motor in die andere Richtung.
+	 * @return die Bewegung, mit der auf das Ende gewartet oder vorzeitig
+	 *         gestoppt werden kann
+	 */
+	public MotorMotion starteMotor(final Motor motor, final int duration,
+			final double effort) {
+		motorAusgabe(motor.getMotorName(), duration, effort);
+		return this.talker.runMotorAsync(motor.getPort(), duration, effort);
+	}
+
+	/**
+	 * Startet die beiden gegebenen Motoren gleichzeitig und kehrt sofort
+	 * zurück.
+	 * 
+	 * @param motor1
+	 *            Erster der Motoren, die laufen sollen.
+	 * @param motor2
+	 *            Zweiter der Motoren, die laufen sollen.
+	 * @param duration
+	 *            Wenn 0, bewegen sich die Motoren unendlich lange. Sonst
+	 *            soviele Millisekunden wie angegeben. Motoren rollen danach
+	 *            aus.
+	 * @param effort
+	 *            Die Kraft, mit der sich die Motoren bewegen sollen. Negatives
+	 *            Vorzeichen dreht die Motoren in die andere Richtung.
+	 * @return die Bewegung, mit der auf das Ende gewartet oder vorzeitig
+	 *         gestoppt werden kann
+	 */
+	public MotorMotion starteZweiMotoren(final Motor motor1,
+			final Motor motor2, final int duration, final double effort) {
+		if (debugMode) {
+			motorAusgabe(motor1.getMotorName(), motor2.getMotorName(),
+					duration, effort);
+		}
+		return this.talker.runTwoMotorsAsync(motor1.getPort(),
+				motor2.getPort(), duration, effort);
+	}
+
+	/**
+	 * Dreht den gegebenen Motor um den gegebenen Winkel. Der Motor wird
+	 * anhand seiner Rückmeldungen geregelt und hält an, sobald der Winkel
+	 * erreicht ist.
+	 * 
+	 * @param motor
+	 *            der Motor, der gedreht werden soll
+	 * @param grad
+	 *            Der Winkel in Grad. Negatives Vorzeichen dreht den Motor in
+	 *            die andere Richtung.
+	 * @param effort
+	 *            Die größte Kraft, mit der sich der Motor bewegen soll.
+	 * @param timeoutMillis
+	 *            Wenn 0, wird ohne Zeitlimit gedreht. Sonst hält der Motor
+	 *            spätestens nach soviel Millisekunden an.
+	 * @return {@code true}, wenn der Winkel erreicht wurde, sonst
+	 *         {@code false}
+	 */
+	public boolean dreheMotor(final Motor motor, final double grad,
+			final double effort, final int timeoutMillis) {
+		if (debugMode) {
+			log.log(LOG_DREHE_MOTOR, motor.getMotorName(), grad, effort);
+		}
+		try {
+			return this.talker.rotateMotorAsync(motor.getPort(), grad, effort,
+					timeoutMillis).get();
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new InterruptedRuntimeException();
+		}
+	}
+
+	/**
+	 * Fährt mit den beiden gegebenen Antriebsmotoren die gegebene Strecke
+	 * geradeaus. Die Motoren halten an, sobald die Strecke zurückgelegt ist.
+	 * 
+	 * @param motor1
+	 *            Erster der Antriebsmotoren.
+	 * @param motor2
+	 *            Zweiter der Antriebsmotoren.
+	 * @param zentimeter
+	 *            Die Strecke in cm. Negatives Vorzeichen fährt rückwärts.
+	 * @param effort
+	 *            Die größte Kraft, mit der sich die Motoren bewegen sollen.
+	 * @param timeoutMillis
+	 *            Wenn 0, wird ohne Zeitlimit gefahren. Sonst halten die
+	 *            Motoren spätestens nach soviel Millisekunden an.
+	 * @return {@code true}, wenn die Strecke zurückgelegt wurde, sonst
+	 *         {@code false}
+	 */
+	public boolean fahreStrecke(final Motor motor1, final Motor motor2,
+			final double zentimeter, final double effort,
+			final int timeoutMillis) {
+		if (debugMode) {
+			log.log(LOG_FAHRE_STRECKE, motor1.getMotorName(),
+					motor2.getMotorName(), zentimeter, effort);
+		}
+		try {
+			return this.talker.driveDistanceAsync(motor1.getPort(),
+					motor2.getPort(), zentimeter / 100.0, effort,
+					timeoutMillis).get();
+		} catch (final InterruptedException e) {
+			e.printStackTrace();
+			throw new InterruptedRuntimeException();
+		}
+	}
+
+	/**
+	 * zeichnet ab sofort alle Sensornachrichten und Motorkommandos in Dateien
+	 * im gegebenen Verzeichnis auf (siehe {@code MessageRecorder}), sodass
+	 * sich ein Lauf später nachvollziehen lässt. Eine laufende Aufzeichnung
+	 * wird beendet.
+	 * 
+	 * @param verzeichnis
+	 *            das Verzeichnis für die Aufzeichnung
+	 * @throws IOException
+	 *             wenn die erste Datei nicht angelegt werden kann
+	 */
+	public void starteAufzeichnung(final File verzeichnis) throws IOException {
+		beendeAufzeichnung();
+		this.talker.setRecorder(new MessageRecorder(verzeichnis, "robot"));
+		if (debugMode) {
+			log.log(LOG_AUFZEICHNUNG, verzeichnis);
+		}
+	}
+
+	/**
+	 * beendet die Aufzeichnung und schreibt sie auf die Platte.
+	 */
+	public void beendeAufzeichnung() {
+		final MessageRecorder recorder = this.talker.getRecorder();
+		if (recorder != null) {
+			this.talker.setRecorder(null);
+			recorder.close();
+			if (debugMode) {
+				log.log(LOG_AUFZEICHNUNG_BEENDET, recorder.getRecordCount());
+			}
+		}
+	}
+
 	/**
 	 * deaktiviert alle Motoren.
 	 */
 	public void stoppeMotoren() {
 		if (this.debugMode) {
-			System.out.println("Alle Motoren stoppen!");
+			log.log(LOG_STOPP);
 		}
 		this.talker.allMotorStop();
 	}
@@ -460,8 +1065,18 @@ public class Robot {
 	private void motorAusgabe(final String motorName, final int duration,
 			final double effort) {
 		if (debugMode) {
-			System.out.println("Roboter startet Motor " + motorName + " ("
-					+ duration + " s, " + effort + ")");
+			log.log(LOG_MOTOR, motorName, duration, effort);
+		}
+	}
+
+	/**
+	 * Protokolliert die Aktivität zweier Motoren, sofern der DebugModus
+	 * aktiviert ist.
+	 */
+	private void motorAusgabe(final String motorName1,
+			final String motorName2, final int duration, final double effort) {
+		if (debugMode) {
+			log.log(LOG_ZWEI_MOTOREN, motorName1, motorName2, duration, effort);
 		}
 	}
 
@@ -9,9 +9,9 @@ public class RobotExample {
 	}
 
 	public static void driveUntilObstacle(Robot robot) {
-		while (robot.leseDistanz() >= 0.3) {
-			robot.bewegeZweiMotoren("b", "c", 0, 1);
-		}
+		robot.bewegeZweiMotoren("b", "c", 0, 1);
+		robot.warteAufDistanzUnter(0.3, 0);
+		robot.stoppeMotoren();
 	}
 
 }
@@ -123,13 +123,18 @@ class Motor(Device):
 
     def cmd_cb(self, msg):
         if msg.name == self.name:
- 
-            cmd = msg.effort / POWER_TO_NM
-            if cmd > POWER_MAX:
-                cmd = POWER_MAX
-            elif cmd < -POWER_MAX:
-                cmd = -POWER_MAX
-            self.cmd = cmd  #save command
+            self.set_effort(msg.effort)
+
+    def set_effort(self, effort):
+        cmd = effort / POWER_TO_NM
+        if cmd > POWER_MAX:
+            cmd = POWER_MAX
+        elif cmd < -POWER_MAX:
+            cmd = -POWER_MAX
+        self.cmd = cmd  #save command
+
+    def send_command(self):
+        self.motor.run(int(self.cmd), 0)
 
     def trigger(self):
         js = JointState()
@@ -149,7 +154,32 @@ class Motor(Device):
         self.last_js = js
 
         # send command
-        self.motor.run(int(self.cmd), 0)
+        self.send_command()
+
+
+# applies commands for several motors at once, so that e.g. both drive
+# motors start and stop in the same cycle instead of one trigger apart
+class MotorBatch:
+    def __init__(self, motors):
+        self.motors = dict((m.name, m) for m in motors)
+
+        # create subscriber
+        self.sub = rospy.Subscriber('joint_commands', JointState, self.cmd_cb, None, 2)
+
+    def cmd_cb(self, msg):
+        targets = []
+        for name, effort in zip(msg.name, msg.effort):
+            if name in self.motors:
+                self.motors[name].set_effort(effort)
+                targets.append(self.motors[name])
+        if not targets:
+            return
+        my_lock.acquire()
+        try:
+            for m in targets:
+                m.send_command()
+        finally:
+            my_lock.release()
 
 
 
@@ -386,6 +416,7 @@ def main():
             components.append(AccelerometerSensor(c, b))
         else:
             rospy.logerr('Invalid sensor/actuator type %s'%c['type'])
+    batch = MotorBatch([c for c in components if isinstance(c, Motor)])
 
     callback_handle_frequency = 10.0
     last_callback_handle = rospy.Time.now()
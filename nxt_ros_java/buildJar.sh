@@ -1,3 +1,29 @@
 #!/bin/bash
 cd bin
-jar cf ../nxt_java_handler.jar org/ros/nxt_ros_java/Talker* org/ros/nxt_ros_java/NxtJavaHandler.class
+jar cf ../nxt_java_handler.jar \
+	org/ros/nxt_ros_java/Talker*.class \
+	org/ros/nxt_ros_java/NxtJavaHandler*.class \
+	org/ros/nxt_ros_java/Sensor*.class \
+	org/ros/nxt_ros_java/StaleSensorDataException.class \
+	org/ros/nxt_ros_java/MotorMotion.class \
+	org/ros/nxt_ros_java/MotorPort.class \
+	org/ros/nxt_ros_java/MessageSink.class \
+	org/ros/nxt_ros_java/PublisherSink.class \
+	org/ros/nxt_ros_java/CommandMessages.class \
+	org/ros/nxt_ros_java/ColorClassifier*.class \
+	org/ros/nxt_ros_java/JointStateSample.class \
+	org/ros/nxt_ros_java/PidController.class \
+	org/ros/nxt_ros_java/Position*.class \
+	org/ros/nxt_ros_java/DifferentialDrive*.class \
+	org/ros/nxt_ros_java/TopicMap*.class \
+	org/ros/nxt_ros_java/TalkerFleet*.class \
+	org/ros/nxt_ros_java/SensorHistory.class \
+	org/ros/nxt_ros_java/MessageRecorder*.class \
+	org/ros/nxt_ros_java/RecordingReader*.class \
+	org/ros/nxt_ros_java/LogReplay*.class \
+	org/ros/nxt_ros_java/DiscardingSink.class \
+	org/ros/nxt_ros_java/DebugLog*.class \
+	org/ros/nxt_ros_java/ReflexRule.class \
+	org/ros/nxt_ros_java/ControlLoop*.class \
+	org/ros/nxt_ros_java/Behavior*.class \
+	org/ros/nxt_ros_java/ProgramHost*.class
@@ -0,0 +1,71 @@
+package org.ros.nxt_ros_java;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Prüft, dass das Kommandieren der Motoren über {@link MotorPort} im
+ * eingeschwungenen Zustand keine Objekte erzeugt. Gemessen werden die vom
+ * aktuellen Thread allokierten Bytes über
+ * {@link com.sun.management.ThreadMXBean}.
+ * 
+ * Aufruf: gradle benchmark
+ */
+public class CommandAllocationBenchmark {
+
+	private static final int ROUNDS = 10;
+	private static final int ITERATIONS = 200000;
+
+	private static final MotorPort[] DRIVE = { MotorPort.B, MotorPort.C };
+
+	public static void main(String[] argv) {
+		Talker talker = new Talker();
+		LoopbackMessages.CountingSink<nxt_msgs.JointCommand> single = LoopbackMessages
+				.jointCommandSink();
+		LoopbackMessages.CountingSink<sensor_msgs.JointState> batch = LoopbackMessages
+				.jointStateSink();
+		// Die voreingestellte Höchstrate bleibt aktiv; gemessen wird also
+		// einschließlich des Zurückhaltens und Nachreichens von Kommandos
+		talker.attachCommandSinks(single, batch);
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+
+		// Die ersten Runden dienen dem Aufwärmen (Klassenladen, JIT), als
+		// eingeschwungen gilt die zweite Hälfte der Runden.
+		long steadyAllocated = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long before = threads.getThreadAllocatedBytes(threadId);
+			long start = System.nanoTime();
+			run(talker, ITERATIONS);
+			long elapsed = System.nanoTime() - start;
+			long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+			long operations = 4L * ITERATIONS;
+			System.out.println("Runde " + round + ": "
+					+ (double) elapsed / operations + " ns/Operation, "
+					+ (double) allocated / operations + " Bytes/Operation");
+			if (round >= ROUNDS / 2) {
+				steadyAllocated += allocated;
+			}
+		}
+		System.out.println("Nachrichten: " + (single.published + batch.published));
+		if (steadyAllocated > 0) {
+			System.out.println("FEHLER: " + steadyAllocated
+					+ " Bytes im eingeschwungenen Zustand allokiert");
+			System.exit(1);
+		}
+		System.out.println("Keine Allokationen im eingeschwungenen Zustand");
+	}
+
+	private static final double[] EFFORTS = { 1, -1 };
+
+	private static void run(Talker talker, int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			double effort = (i & 1) == 0 ? 1 : 0.5;
+			talker.runMotorAsync(MotorPort.A, 0, effort);
+			talker.runTwoMotorsAsync(MotorPort.B, MotorPort.C, 0, effort);
+			talker.setEfforts(DRIVE, EFFORTS);
+			talker.allMotorStop();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package org.ros.nxt_ros_java;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst das Kommandieren der Motoren über den {@link Talker} gegen
+ * Platzhalter-Publisher. Die Dauer ist jeweils 0, damit nur der Weg bis zum
+ * Veröffentlichen gemessen wird.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandBenchmark {
+
+	private Talker talker;
+	private int tick;
+
+	@Setup
+	public void setUp() {
+		talker = new Talker();
+		// Die voreingestellte Höchstrate bleibt aktiv; gemessen wird also
+		// einschließlich des Zurückhaltens und Nachreichens von Kommandos
+		talker.attachCommandSinks(LoopbackMessages.jointCommandSink(),
+				LoopbackMessages.jointStateSink());
+	}
+
+	/**
+	 * Wechselt die Kraft bei jedem Aufruf, damit nicht nur unveränderte
+	 * Nachrichten erneut veröffentlicht werden.
+	 */
+	private double nextEffort() {
+		return (tick++ & 1) == 0 ? 1 : 0.5;
+	}
+
+	@Benchmark
+	public void runMotorByName() throws InterruptedException {
+		talker.runMotor("b", 0, nextEffort());
+	}
+
+	@Benchmark
+	public MotorMotion runMotorByPort() {
+		return talker.runMotorAsync(MotorPort.B, 0, nextEffort());
+	}
+
+	@Benchmark
+	public void runTwoMotorsByName() throws InterruptedException {
+		talker.runTwoMotors("b", "c", 0, nextEffort());
+	}
+
+	@Benchmark
+	public MotorMotion runTwoMotorsByPort() {
+		return talker.runTwoMotorsAsync(MotorPort.B, MotorPort.C, 0,
+				nextEffort());
+	}
+
+	@Benchmark
+	public void allMotorStop() {
+		talker.allMotorStop();
+	}
+}
@@ -0,0 +1,341 @@
+package org.ros.nxt_ros_java;
+
+import java.util.List;
+
+import org.ros.internal.message.RawMessage;
+import org.ros.message.Time;
+
+/**
+ * Platzhalter für die rosjava-Nachrichten und -Publisher, damit die Benchmarks
+ * ohne ROS-Master im selben Prozess laufen. Veröffentlichte Nachrichten werden
+ * nur gezählt, Sensornachrichten werden direkt an die Listener des
+ * {@link Talker}s übergeben.
+ */
+final class LoopbackMessages {
+
+	private LoopbackMessages() {
+	}
+
+	static final class JointCommand implements nxt_msgs.JointCommand {
+		private String name;
+		private double effort;
+
+		@Override
+		public String getName() {
+			return name;
+		}
+
+		@Override
+		public void setName(String value) {
+			name = value;
+		}
+
+		@Override
+		public double getEffort() {
+			return effort;
+		}
+
+		@Override
+		public void setEffort(double value) {
+			effort = value;
+		}
+
+		@Override
+		public RawMessage toRawMessage() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	static final class JointState implements sensor_msgs.JointState {
+		private std_msgs.Header header;
+		private List<String> name;
+		private double[] position = new double[0];
+		private double[] velocity = new double[0];
+		private double[] effort = new double[0];
+
+		@Override
+		public std_msgs.Header getHeader() {
+			return header;
+		}
+
+		@Override
+		public void setHeader(std_msgs.Header value) {
+			header = value;
+		}
+
+		@Override
+		public List<String> getName() {
+			return name;
+		}
+
+		@Override
+		public void setName(List<String> value) {
+			name = value;
+		}
+
+		@Override
+		public double[] getPosition() {
+			return position;
+		}
+
+		@Override
+		public void setPosition(double[] value) {
+			position = value;
+		}
+
+		@Override
+		public double[] getVelocity() {
+			return velocity;
+		}
+
+		@Override
+		public void setVelocity(double[] value) {
+			velocity = value;
+		}
+
+		@Override
+		public double[] getEffort() {
+			return effort;
+		}
+
+		@Override
+		public void setEffort(double[] value) {
+			effort = value;
+		}
+
+		@Override
+		public RawMessage toRawMessage() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	static final class Header implements std_msgs.Header {
+		private int seq;
+		private Time stamp = Time.fromMillis(System.currentTimeMillis());
+		private String frameId = "";
+
+		@Override
+		public int getSeq() {
+			return seq;
+		}
+
+		@Override
+		public void setSeq(int value) {
+			seq = value;
+		}
+
+		@Override
+		public Time getStamp() {
+			return stamp;
+		}
+
+		@Override
+		public void setStamp(Time value) {
+			stamp = value;
+		}
+
+		@Override
+		public String getFrameId() {
+			return frameId;
+		}
+
+		@Override
+		public void setFrameId(String value) {
+			frameId = value;
+		}
+
+		@Override
+		public RawMessage toRawMessage() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	static final class Range implements nxt_msgs.Range {
+		private std_msgs.Header header = new Header();
+		private double range;
+		private double rangeMin;
+		private double rangeMax;
+		private double spreadAngle;
+
+		@Override
+		public std_msgs.Header getHeader() {
+			return header;
+		}
+
+		@Override
+		public void setHeader(std_msgs.Header value) {
+			header = value;
+		}
+
+		@Override
+		public double getRange() {
+			return range;
+		}
+
+		@Override
+		public void setRange(double value) {
+			range = value;
+		}
+
+		@Override
+		public double getRangeMin() {
+			return rangeMin;
+		}
+
+		@Override
+		public void setRangeMin(double value) {
+			rangeMin = value;
+		}
+
+		@Override
+		public double getRangeMax() {
+			return rangeMax;
+		}
+
+		@Override
+		public void setRangeMax(double value) {
+			rangeMax = value;
+		}
+
+		@Override
+		public double getSpreadAngle() {
+			return spreadAngle;
+		}
+
+		@Override
+		public void setSpreadAngle(double value) {
+			spreadAngle = value;
+		}
+
+		@Override
+		public RawMessage toRawMessage() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	static final class Contact implements nxt_msgs.Contact {
+		private std_msgs.Header header = new Header();
+		private boolean contact;
+
+		@Override
+		public std_msgs.Header getHeader() {
+			return header;
+		}
+
+		@Override
+		public void setHeader(std_msgs.Header value) {
+			header = value;
+		}
+
+		@Override
+		public boolean getContact() {
+			return contact;
+		}
+
+		@Override
+		public void setContact(boolean value) {
+			contact = value;
+		}
+
+		@Override
+		public RawMessage toRawMessage() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	static final class Color implements nxt_msgs.Color {
+		private std_msgs.Header header = new Header();
+		private double intensity;
+		private double r;
+		private double g;
+		private double b;
+
+		@Override
+		public std_msgs.Header getHeader() {
+			return header;
+		}
+
+		@Override
+		public void setHeader(std_msgs.Header value) {
+			header = value;
+		}
+
+		@Override
+		public double getIntensity() {
+			return intensity;
+		}
+
+		@Override
+		public void setIntensity(double value) {
+			intensity = value;
+		}
+
+		@Override
+		public double getR() {
+			return r;
+		}
+
+		@Override
+		public void setR(double value) {
+			r = value;
+		}
+
+		@Override
+		public double getG() {
+			return g;
+		}
+
+		@Override
+		public void setG(double value) {
+			g = value;
+		}
+
+		@Override
+		public double getB() {
+			return b;
+		}
+
+		@Override
+		public void setB(double value) {
+			b = value;
+		}
+
+		@Override
+		public RawMessage toRawMessage() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Zählt veröffentlichte Nachrichten und merkt sich die letzte, damit der
+	 * JIT das Veröffentlichen nicht wegoptimiert.
+	 */
+	abstract static class CountingSink<T> implements MessageSink<T> {
+		long published;
+		T last;
+
+		@Override
+		public void publish(T message) {
+			published++;
+			last = message;
+		}
+	}
+
+	static CountingSink<nxt_msgs.JointCommand> jointCommandSink() {
+		return new CountingSink<nxt_msgs.JointCommand>() {
+			@Override
+			public nxt_msgs.JointCommand newMessage() {
+				return new JointCommand();
+			}
+		};
+	}
+
+	static CountingSink<sensor_msgs.JointState> jointStateSink() {
+		return new CountingSink<sensor_msgs.JointState>() {
+			@Override
+			public sensor_msgs.JointState newMessage() {
+				return new JointState();
+			}
+		};
+	}
+}
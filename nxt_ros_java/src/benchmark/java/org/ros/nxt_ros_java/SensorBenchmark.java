@@ -0,0 +1,88 @@
+package org.ros.nxt_ros_java;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Misst die Sensor-Listener des {@link Talker}s und das Lesen der Werte über
+ * {@link Talker}, {@link NxtJavaHandler} und {@link Robot}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SensorBenchmark {
+
+	private Talker talker;
+	private NxtJavaHandler handler;
+	private Robot robot;
+
+	private LoopbackMessages.Range range;
+	private LoopbackMessages.Contact contact;
+	private LoopbackMessages.Color color;
+	private int tick;
+
+	@Setup
+	public void setUp() {
+		talker = new Talker();
+		handler = new NxtJavaHandler(talker);
+		robot = new Robot(talker, false);
+
+		range = new LoopbackMessages.Range();
+		contact = new LoopbackMessages.Contact();
+		color = new LoopbackMessages.Color();
+		color.setB(1.0);
+		talker.colorListener.onNewMessage(color);
+		talker.rangeListener.onNewMessage(range);
+	}
+
+	@Benchmark
+	public void rangeCallback() {
+		range.setRange((tick++ & 1) == 0 ? 0.4 : 0.6);
+		talker.rangeListener.onNewMessage(range);
+	}
+
+	@Benchmark
+	public void contactCallback() {
+		contact.setContact((tick++ & 1) == 0);
+		talker.contactListener.onNewMessage(contact);
+	}
+
+	@Benchmark
+	public void colorCallback() {
+		color.setR((tick++ & 1) == 0 ? 0.0 : 1.0);
+		talker.colorListener.onNewMessage(color);
+	}
+
+	@Benchmark
+	public double getRange() {
+		return talker.getRange();
+	}
+
+	@Benchmark
+	public SensorSnapshot snapshot() {
+		return talker.snapshot();
+	}
+
+	@Benchmark
+	public NxtJavaHandler.Farbe handlerLeseFarbe() {
+		return handler.leseFarbe();
+	}
+
+	@Benchmark
+	public Robot.Farbe robotLeseFarbe() {
+		return robot.leseFarbe();
+	}
+}
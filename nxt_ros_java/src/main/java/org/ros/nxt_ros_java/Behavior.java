@@ -0,0 +1,116 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Ein Verhalten, das von einem {@link BehaviorScheduler} zusammen mit anderen
+ * Verhalten in einem einzigen Thread ausgeführt wird.
+ *
+ * Ein Verhalten ist ein Zustandsautomat, der nie blockiert: Statt zu warten
+ * oder zu schlafen, merkt es sich seinen Zustand in Feldern und prüft bei
+ * jedem Takt mit {@link #tick(long, Output)}, ob es weitergeht, z.B. anhand
+ * der Sensorwerte des Talkers oder der übergebenen Zeit. Motoren steuert es
+ * nicht direkt, sondern trägt die gewünschten Kräfte in seine
+ * {@link Output Ausgabe} ein. Beanspruchen mehrere Verhalten denselben Motor,
+ * gewinnt das mit der höheren Priorität (Subsumption), bei gleicher Priorität
+ * das zuerst angemeldete.
+ */
+public abstract class Behavior {
+
+	/**
+	 * Die Motorausgabe eines Verhaltens für einen Takt. Sie ist zu Beginn
+	 * jedes Takts leer; was nicht eingetragen wird, überlässt das Verhalten
+	 * Verhalten niedrigerer Priorität.
+	 */
+	public static final class Output {
+
+		private final double[] efforts = new double[MotorPort.values().length];
+		private int mask = 0;
+
+		Output() {
+		}
+
+		/**
+		 * Beansprucht einen Motor für diesen Takt.
+		 */
+		public void setEffort(MotorPort port, double effort) {
+			efforts[port.ordinal()] = effort;
+			mask |= port.mask();
+		}
+
+		/**
+		 * Beansprucht zwei Motoren mit derselben Kraft, z.B. beide
+		 * Antriebsräder.
+		 */
+		public void setEfforts(MotorPort port1, MotorPort port2, double effort) {
+			setEffort(port1, effort);
+			setEffort(port2, effort);
+		}
+
+		/**
+		 * Beansprucht einen Motor und hält ihn an.
+		 */
+		public void stop(MotorPort port) {
+			setEffort(port, 0);
+		}
+
+		int getMask() {
+			return mask;
+		}
+
+		double getEffort(int index) {
+			return efforts[index];
+		}
+
+		void clear() {
+			mask = 0;
+		}
+	}
+
+	private final String name;
+	private final int priority;
+	private final Output output = new Output();
+
+	/**
+	 * @param name
+	 *            Name für Ausgaben
+	 * @param priority
+	 *            die Priorität; höhere Werte setzen sich bei den Motoren
+	 *            durch
+	 */
+	protected Behavior(String name, int priority) {
+		this.name = name;
+		this.priority = priority;
+	}
+
+	/**
+	 * Ein Takt des Verhaltens. Wird in jedem Takt des Schedulers aufgerufen,
+	 * auch wenn ein Verhalten höherer Priorität die Motoren gerade für sich
+	 * beansprucht, und darf nicht blockieren.
+	 *
+	 * @param nowNanos
+	 *            Zeitpunkt des Takts nach {@link System#nanoTime()}; für alle
+	 *            Verhalten eines Takts gleich
+	 * @param output
+	 *            die Motorausgabe, in die das Verhalten einträgt, welche
+	 *            Motoren es mit welcher Kraft beansprucht
+	 * @return true, um weiterzulaufen, false, wenn das Verhalten fertig ist;
+	 *         es wird dann abgemeldet und seine Ausgabe nicht mehr beachtet
+	 */
+	protected abstract boolean tick(long nowNanos, Output output);
+
+	public String getName() {
+		return name;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	Output getOutput() {
+		return output;
+	}
+
+	@Override
+	public String toString() {
+		return name + " (" + priority + ")";
+	}
+}
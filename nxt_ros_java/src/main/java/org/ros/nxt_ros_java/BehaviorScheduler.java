@@ -0,0 +1,248 @@
+package org.ros.nxt_ros_java;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Führt beliebig viele {@link Behavior Verhalten} in einem einzigen Thread
+ * aus und entscheidet in jedem Takt, welches Verhalten welchen Motor steuert.
+ *
+ * Statt für jedes gleichzeitige Verhalten, z.B. Fahren und nebenbei nach einer
+ * Farbe Ausschau halten, eine eigene blockierende Schleife in einem eigenen
+ * Thread zu schreiben, werden alle Verhalten mit fester Rate über eine
+ * {@link ControlLoop} getaktet. In jedem Takt werden alle Verhalten in der
+ * Reihenfolge ihrer Priorität aufgerufen; je Motor setzt sich das Verhalten
+ * mit der höchsten Priorität durch, das ihn beansprucht. Die Kräfte aller
+ * Motoren werden danach mit einer einzigen Nachricht veröffentlicht. Ein
+ * Motor, den kein Verhalten mehr beansprucht, wird einmal angehalten.
+ *
+ * Die Entscheidung hängt nur von den Prioritäten und der Reihenfolge der
+ * Anmeldung ab und ist damit reproduzierbar. Ein Takt erzeugt keine Objekte.
+ */
+public class BehaviorScheduler implements ControlLoop.Step {
+
+	/**
+	 * Voreingestellte Rate in Hz, passend zur Rate, mit der der Treiber
+	 * Sensorwerte veröffentlicht.
+	 */
+	public static final int DEFAULT_RATE_HZ = 20;
+
+	private static final MotorPort[] PORTS = MotorPort.values();
+
+	private final Talker talker;
+	private final double rateHz;
+
+	// Nach Priorität absteigend sortiert; bei Änderungen unter this als
+	// Ganzes ersetzt, damit der Takt ohne Sperre darüber iterieren kann
+	private volatile Behavior[] behaviors = new Behavior[0];
+
+	private ControlLoop loop;
+	private volatile boolean stopRequested = false;
+
+	// Zustand des Takts, nur im Scheduler-Thread benutzt
+	private final double[] efforts = new double[PORTS.length];
+	private int claimedMask = 0;
+	private final AtomicReferenceArray<Behavior> winners = new AtomicReferenceArray<Behavior>(
+			PORTS.length);
+
+	public BehaviorScheduler(Talker talker) {
+		this(talker, DEFAULT_RATE_HZ);
+	}
+
+	/**
+	 * @param rateHz
+	 *            die Rate, mit der alle Verhalten getaktet werden
+	 */
+	public BehaviorScheduler(Talker talker, double rateHz) {
+		if (!(rateHz > 0)) {
+			throw new IllegalArgumentException("Ungültige Rate: " + rateHz);
+		}
+		this.talker = talker;
+		this.rateHz = rateHz;
+	}
+
+	/**
+	 * Meldet ein Verhalten an. Es wird ab dem nächsten Takt ausgeführt.
+	 *
+	 * @throws IllegalStateException
+	 *             wenn das Verhalten bereits angemeldet ist
+	 */
+	public synchronized void add(Behavior behavior) {
+		Behavior[] current = behaviors;
+		int position = current.length;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == behavior) {
+				throw new IllegalStateException(
+						"Das Verhalten ist bereits angemeldet: " + behavior);
+			}
+			// Bei gleicher Priorität hinter die bereits angemeldeten
+			if (position == current.length
+					&& current[i].getPriority() < behavior.getPriority()) {
+				position = i;
+			}
+		}
+		Behavior[] next = new Behavior[current.length + 1];
+		System.arraycopy(current, 0, next, 0, position);
+		next[position] = behavior;
+		System.arraycopy(current, position, next, position + 1,
+				current.length - position);
+		behaviors = next;
+	}
+
+	/**
+	 * Meldet ein Verhalten ab. Es wird ab dem nächsten Takt nicht mehr
+	 * ausgeführt.
+	 *
+	 * @return true, wenn das Verhalten angemeldet war
+	 */
+	public synchronized boolean remove(Behavior behavior) {
+		Behavior[] current = behaviors;
+		for (int i = 0; i < current.length; i++) {
+			if (current[i] == behavior) {
+				Behavior[] next = new Behavior[current.length - 1];
+				System.arraycopy(current, 0, next, 0, i);
+				System.arraycopy(current, i + 1, next, i, next.length - i);
+				behaviors = next;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return Anzahl der angemeldeten Verhalten
+	 */
+	public int getBehaviorCount() {
+		return behaviors.length;
+	}
+
+	/**
+	 * @return das Verhalten, das den Motor im letzten Takt gesteuert hat,
+	 *         oder null
+	 */
+	public Behavior getActiveBehavior(MotorPort port) {
+		return winners.get(port.ordinal());
+	}
+
+	/**
+	 * Startet den Scheduler in einem eigenen Thread.
+	 *
+	 * @throws IllegalStateException
+	 *             wenn der Scheduler bereits gestartet wurde
+	 */
+	public synchronized void start() {
+		if (loop != null) {
+			throw new IllegalStateException("Der Scheduler läuft bereits");
+		}
+		loop = new ControlLoop("nxt-behaviors", rateHz, this);
+		loop.start();
+	}
+
+	/**
+	 * Beendet den Scheduler nach dem gerade laufenden Takt und hält die
+	 * Motoren an, die er zuletzt gesteuert hat. Kann auch aus einem Verhalten
+	 * aufgerufen werden.
+	 */
+	public void stop() {
+		stopRequested = true;
+	}
+
+	/**
+	 * Blockiert, bis der Scheduler beendet ist.
+	 *
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn der Scheduler beendet ist, false bei
+	 *         Zeitüberschreitung
+	 * @throws InterruptedException
+	 * @throws IllegalStateException
+	 *             wenn der Scheduler nicht gestartet wurde
+	 */
+	public boolean awaitFinished(long timeoutMillis)
+			throws InterruptedException {
+		return getLoop().awaitFinished(timeoutMillis);
+	}
+
+	/**
+	 * @return die Schleife, z.B. für ihre Statistik
+	 * @throws IllegalStateException
+	 *             wenn der Scheduler nicht gestartet wurde
+	 */
+	public synchronized ControlLoop getLoop() {
+		if (loop == null) {
+			throw new IllegalStateException("Der Scheduler wurde nicht gestartet");
+		}
+		return loop;
+	}
+
+	/**
+	 * Ein Takt; wird von der {@link ControlLoop} aufgerufen.
+	 */
+	@Override
+	public boolean step() {
+		if (stopRequested) {
+			stopClaimedMotors();
+			return false;
+		}
+		long now = System.nanoTime();
+		int mask = 0;
+		for (Behavior behavior : behaviors) {
+			Behavior.Output output = behavior.getOutput();
+			output.clear();
+			boolean running;
+			try {
+				running = behavior.tick(now, output);
+			} catch (RuntimeException e) {
+				// Ein fehlerhaftes Verhalten soll die übrigen nicht anhalten
+				e.printStackTrace();
+				running = false;
+			}
+			if (!running) {
+				remove(behavior);
+				continue;
+			}
+			int claimed = output.getMask() & ~mask;
+			for (MotorPort port : PORTS) {
+				if ((claimed & port.mask()) != 0) {
+					int i = port.ordinal();
+					efforts[i] = output.getEffort(i);
+					setWinner(i, behavior);
+				}
+			}
+			mask |= claimed;
+		}
+		// Motoren, die kein Verhalten mehr beansprucht, werden angehalten
+		int released = claimedMask & ~mask;
+		for (MotorPort port : PORTS) {
+			if ((released & port.mask()) != 0) {
+				int i = port.ordinal();
+				efforts[i] = 0;
+				setWinner(i, null);
+			}
+		}
+		claimedMask = mask;
+		if ((mask | released) != 0) {
+			talker.setEfforts(mask | released, efforts);
+		}
+		return true;
+	}
+
+	private void setWinner(int index, Behavior behavior) {
+		if (winners.get(index) != behavior) {
+			winners.set(index, behavior);
+		}
+	}
+
+	private void stopClaimedMotors() {
+		if (claimedMask == 0) {
+			return;
+		}
+		for (MotorPort port : PORTS) {
+			int i = port.ordinal();
+			efforts[i] = 0;
+			winners.set(i, null);
+		}
+		talker.setEfforts(claimedMask, efforts);
+		claimedMask = 0;
+	}
+}
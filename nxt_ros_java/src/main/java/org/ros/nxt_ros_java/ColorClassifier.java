@@ -0,0 +1,288 @@
+package org.ros.nxt_ros_java;
+
+import java.util.Arrays;
+
+import org.ros.nxt_ros_java.NxtJavaHandler.Farbe;
+
+/**
+ * Ordnet die Messwerte des Farbsensors der nächstgelegenen Standardfarbe zu
+ * (Nearest-Centroid). Jede Standardfarbe hat einen Referenzwert aus RGB-Anteilen
+ * und optional einer Helligkeit; liegt der Messwert weiter als
+ * {@link #getMaxDistance()} von allen Referenzwerten entfernt, wird
+ * Farbe.UNGUELTIG geliefert.
+ *
+ * Die Referenzwerte können gesetzt oder mit einer {@link Calibration} aus
+ * Messungen gelernt werden. Das Einordnen erzeugt keine Objekte, braucht
+ * konstante Zeit und darf parallel zum Ändern der Einstellungen aufgerufen
+ * werden, also auch im Callback des color_sensor-Subscribers.
+ */
+public final class ColorClassifier {
+
+	/**
+	 * Voreingestellter Höchstabstand. Die Referenzwerte der Standardfarben
+	 * liegen mindestens 1 auseinander, die Bereiche überlappen sich also nicht.
+	 */
+	public static final double DEFAULT_MAX_DISTANCE = 0.3;
+
+	private static final Farbe[] FARBEN = Farbe.values();
+	private static final int ANZAHL = Farbe.UNGUELTIG.ordinal();
+
+	// Aufbau des Modells: je Farbe (Index ordinal) r, g, b, Helligkeit;
+	// danach das Quadrat des Höchstabstands und das Gewicht der Helligkeit
+	private static final int WERTE_JE_FARBE = 4;
+	private static final int MAX_DISTANZ_QUADRAT = ANZAHL * WERTE_JE_FARBE;
+	private static final int HELLIGKEIT_GEWICHT = MAX_DISTANZ_QUADRAT + 1;
+
+	// Wird nie verändert, sondern bei jeder Einstellung ersetzt, damit
+	// classify ohne Sperre einen stimmigen Stand liest
+	private volatile double[] model;
+
+	/**
+	 * Erzeugt einen Klassifikator mit den Referenzwerten der Standardfarben,
+	 * dem voreingestellten Höchstabstand und ohne Helligkeit.
+	 */
+	public ColorClassifier() {
+		model = defaultModel();
+	}
+
+	private static double[] defaultModel() {
+		double[] initial = new double[HELLIGKEIT_GEWICHT + 1];
+		for (int i = 0; i < ANZAHL; i++) {
+			Farbe farbe = FARBEN[i];
+			int offset = i * WERTE_JE_FARBE;
+			initial[offset] = farbe.getRotAnteil();
+			initial[offset + 1] = farbe.getGruenAnteil();
+			initial[offset + 2] = farbe.getBlauAnteil();
+			initial[offset + 3] = Double.NaN;
+		}
+		initial[MAX_DISTANZ_QUADRAT] = DEFAULT_MAX_DISTANCE
+				* DEFAULT_MAX_DISTANCE;
+		initial[HELLIGKEIT_GEWICHT] = 0;
+		return initial;
+	}
+
+	/**
+	 * Ordnet die RGB-Anteile der nächstgelegenen Standardfarbe zu, ohne die
+	 * Helligkeit zu berücksichtigen.
+	 *
+	 * @return die passende Standardfarbe, sonst Farbe.UNGUELTIG
+	 */
+	public Farbe classify(double r, double g, double b) {
+		return classify(r, g, b, Double.NaN);
+	}
+
+	/**
+	 * Ordnet RGB-Anteile und Helligkeit der nächstgelegenen Standardfarbe zu.
+	 * Die Helligkeit zählt nur, wenn ein Gewicht gesetzt ist und die
+	 * Standardfarbe einen Referenzwert dafür hat.
+	 *
+	 * @return die passende Standardfarbe, sonst Farbe.UNGUELTIG
+	 */
+	public Farbe classify(double r, double g, double b, double intensity) {
+		double[] m = model;
+		double gewicht = m[HELLIGKEIT_GEWICHT];
+		boolean mitHelligkeit = gewicht > 0 && !Double.isNaN(intensity);
+		double besterAbstand = m[MAX_DISTANZ_QUADRAT];
+		Farbe beste = Farbe.UNGUELTIG;
+		for (int i = 0; i < ANZAHL; i++) {
+			int offset = i * WERTE_JE_FARBE;
+			double dr = r - m[offset];
+			double dg = g - m[offset + 1];
+			double db = b - m[offset + 2];
+			double abstand = dr * dr + dg * dg + db * db;
+			double referenz = m[offset + 3];
+			if (mitHelligkeit && !Double.isNaN(referenz)) {
+				double di = intensity - referenz;
+				abstand += gewicht * di * di;
+			}
+			// NaN-Messwerte bestehen den Vergleich nie
+			if (abstand <= besterAbstand) {
+				besterAbstand = abstand;
+				beste = FARBEN[i];
+			}
+		}
+		return beste;
+	}
+
+	/**
+	 * Ordnet die Farbwerte eines Sensorschnappschusses zu.
+	 *
+	 * @return die passende Standardfarbe, sonst Farbe.UNGUELTIG
+	 */
+	public Farbe classify(SensorSnapshot snapshot) {
+		return classify(snapshot.getColorR(), snapshot.getColorG(),
+				snapshot.getColorB(), snapshot.getColorIntensity());
+	}
+
+	/**
+	 * Setzt den Referenzwert einer Standardfarbe.
+	 *
+	 * @param intensity
+	 *            die erwartete Helligkeit oder Double.NaN, wenn sie für diese
+	 *            Farbe nicht zählen soll
+	 * @throws IllegalArgumentException
+	 *             für Farbe.UNGUELTIG
+	 */
+	public synchronized void setReference(Farbe farbe, double r, double g,
+			double b, double intensity) {
+		if (farbe == Farbe.UNGUELTIG) {
+			throw new IllegalArgumentException(
+					"Für UNGUELTIG gibt es keinen Referenzwert");
+		}
+		double[] next = model.clone();
+		int offset = farbe.ordinal() * WERTE_JE_FARBE;
+		next[offset] = r;
+		next[offset + 1] = g;
+		next[offset + 2] = b;
+		next[offset + 3] = intensity;
+		model = next;
+	}
+
+	/**
+	 * Setzt alle Referenzwerte auf die Anteile der Standardfarben zurück,
+	 * ohne Höchstabstand und Gewicht zu ändern.
+	 */
+	public synchronized void resetReferences() {
+		double[] next = model.clone();
+		System.arraycopy(defaultModel(), 0, next, 0, MAX_DISTANZ_QUADRAT);
+		model = next;
+	}
+
+	public double getReferenceR(Farbe farbe) {
+		return model[farbe.ordinal() * WERTE_JE_FARBE];
+	}
+
+	public double getReferenceG(Farbe farbe) {
+		return model[farbe.ordinal() * WERTE_JE_FARBE + 1];
+	}
+
+	public double getReferenceB(Farbe farbe) {
+		return model[farbe.ordinal() * WERTE_JE_FARBE + 2];
+	}
+
+	public double getReferenceIntensity(Farbe farbe) {
+		return model[farbe.ordinal() * WERTE_JE_FARBE + 3];
+	}
+
+	/**
+	 * Setzt den größten Abstand, bei dem ein Messwert noch einer
+	 * Standardfarbe zugeordnet wird.
+	 *
+	 * @throws IllegalArgumentException
+	 *             wenn der Abstand negativ ist
+	 */
+	public synchronized void setMaxDistance(double maxDistance) {
+		if (!(maxDistance >= 0)) {
+			throw new IllegalArgumentException("Ungültiger Höchstabstand: "
+					+ maxDistance);
+		}
+		double[] next = model.clone();
+		next[MAX_DISTANZ_QUADRAT] = maxDistance * maxDistance;
+		model = next;
+	}
+
+	public double getMaxDistance() {
+		return Math.sqrt(model[MAX_DISTANZ_QUADRAT]);
+	}
+
+	/**
+	 * Legt fest, wie stark die Helligkeit gegenüber den RGB-Anteilen zählt.
+	 * Bei 0 (voreingestellt) wird sie ignoriert.
+	 *
+	 * @throws IllegalArgumentException
+	 *             wenn das Gewicht negativ ist
+	 */
+	public synchronized void setIntensityWeight(double weight) {
+		if (!(weight >= 0)) {
+			throw new IllegalArgumentException("Ungültiges Gewicht: " + weight);
+		}
+		double[] next = model.clone();
+		next[HELLIGKEIT_GEWICHT] = weight;
+		model = next;
+	}
+
+	public double getIntensityWeight() {
+		return model[HELLIGKEIT_GEWICHT];
+	}
+
+	/**
+	 * Sammelt Messwerte zu bekannten Farben und berechnet daraus die
+	 * Referenzwerte als Mittelwert. Nicht threadsicher; gedacht für eine
+	 * Kalibrierung, bei der nacheinander jede Farbe vor den Sensor gehalten
+	 * wird.
+	 */
+	public static final class Calibration {
+
+		private final double[] sums = new double[ANZAHL * WERTE_JE_FARBE];
+		private final int[] counts = new int[ANZAHL];
+		private final int[] intensityCounts = new int[ANZAHL];
+
+		/**
+		 * Nimmt einen Messwert für die gegebene Farbe auf. Eine Helligkeit von
+		 * Double.NaN wird nicht gezählt.
+		 *
+		 * @throws IllegalArgumentException
+		 *             für Farbe.UNGUELTIG
+		 */
+		public void addSample(Farbe farbe, double r, double g, double b,
+				double intensity) {
+			if (farbe == Farbe.UNGUELTIG) {
+				throw new IllegalArgumentException(
+						"Für UNGUELTIG können keine Messwerte gelernt werden");
+			}
+			int i = farbe.ordinal();
+			int offset = i * WERTE_JE_FARBE;
+			sums[offset] += r;
+			sums[offset + 1] += g;
+			sums[offset + 2] += b;
+			counts[i]++;
+			if (!Double.isNaN(intensity)) {
+				sums[offset + 3] += intensity;
+				intensityCounts[i]++;
+			}
+		}
+
+		/**
+		 * Nimmt die Farbwerte eines Sensorschnappschusses auf.
+		 */
+		public void addSample(Farbe farbe, SensorSnapshot snapshot) {
+			addSample(farbe, snapshot.getColorR(), snapshot.getColorG(),
+					snapshot.getColorB(), snapshot.getColorIntensity());
+		}
+
+		public int getSampleCount(Farbe farbe) {
+			return farbe == Farbe.UNGUELTIG ? 0 : counts[farbe.ordinal()];
+		}
+
+		/**
+		 * Übernimmt die Mittelwerte aller Farben, für die Messwerte vorliegen,
+		 * als Referenzwerte. Die übrigen Farben bleiben unverändert.
+		 */
+		public void applyTo(ColorClassifier classifier) {
+			synchronized (classifier) {
+				double[] next = classifier.model.clone();
+				for (int i = 0; i < ANZAHL; i++) {
+					if (counts[i] == 0) {
+						continue;
+					}
+					int offset = i * WERTE_JE_FARBE;
+					next[offset] = sums[offset] / counts[i];
+					next[offset + 1] = sums[offset + 1] / counts[i];
+					next[offset + 2] = sums[offset + 2] / counts[i];
+					next[offset + 3] = intensityCounts[i] == 0 ? Double.NaN
+							: sums[offset + 3] / intensityCounts[i];
+				}
+				classifier.model = next;
+			}
+		}
+
+		/**
+		 * Verwirft alle gesammelten Messwerte.
+		 */
+		public void reset() {
+			Arrays.fill(sums, 0);
+			Arrays.fill(counts, 0);
+			Arrays.fill(intensityCounts, 0);
+		}
+	}
+}
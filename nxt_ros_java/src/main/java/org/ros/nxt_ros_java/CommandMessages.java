@@ -0,0 +1,149 @@
+package org.ros.nxt_ros_java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import nxt_msgs.JointCommand;
+import sensor_msgs.JointState;
+
+/**
+ * Vorab erzeugte Motorkommandos je Port und je Kombination von Ports, damit im
+ * Regelbetrieb beim Veröffentlichen keine Objekte erzeugt werden.
+ * 
+ * rosjava serialisiert veröffentlichte Nachrichten erst später in einem
+ * eigenen Thread. Eine Nachricht wird deshalb nur dann erneut veröffentlicht,
+ * wenn sich ihr Inhalt nicht ändert. Für neue Werte wird reihum die nächste von
+ * {@link #RING_SIZE} Nachrichten beschrieben. Der Ring ist um eins größer als
+ * die Warteschlange des Publishers: Bis eine Nachricht wieder an der Reihe
+ * ist, wurden mindestens so viele neuere veröffentlicht, wie die
+ * Warteschlange fasst. Eine noch wartende Nachricht wird also auch ohne
+ * Höchstrate ({@link Talker#setMaxCommandRate(double)} mit 0) nie verändert.
+ * 
+ * Die Klasse ist nicht threadsicher; der {@link Talker} ruft sie nur unter
+ * seiner Kommandosperre auf.
+ */
+final class CommandMessages {
+
+	// Anzahl der Nachrichten, die rosjava je Publisher zum Senden vorhält
+	static final int PUBLISHER_QUEUE_SIZE = 16;
+
+	static final int RING_SIZE = PUBLISHER_QUEUE_SIZE + 1;
+
+	private static final MotorPort[] PORTS = MotorPort.values();
+
+	private final MessageSink<JointCommand> singleSink;
+	private final MessageSink<JointState> batchSink;
+
+	// [Port][Slot]
+	private final JointCommand[][] single;
+	private final int[] singleSlot;
+
+	// [Portmaske][Slot], nur für Masken mit mindestens zwei Ports belegt
+	private final JointState[][] batch;
+	private final double[][][] batchEfforts;
+	private final int[] batchSlot;
+
+	CommandMessages(MessageSink<JointCommand> singleSink,
+			MessageSink<JointState> batchSink) {
+		this.singleSink = singleSink;
+		this.batchSink = batchSink;
+
+		single = new JointCommand[PORTS.length][RING_SIZE];
+		singleSlot = new int[PORTS.length];
+		for (MotorPort port : PORTS) {
+			for (int slot = 0; slot < RING_SIZE; slot++) {
+				JointCommand command = singleSink.newMessage();
+				command.setName(port.getJointName());
+				command.setEffort(0);
+				single[port.ordinal()][slot] = command;
+			}
+		}
+
+		int masks = 1 << PORTS.length;
+		batch = new JointState[masks][];
+		batchEfforts = new double[masks][][];
+		batchSlot = new int[masks];
+		for (int mask = 0; mask < masks; mask++) {
+			int count = Integer.bitCount(mask);
+			if (count < 2) {
+				continue;
+			}
+			List<String> names = new ArrayList<String>(count);
+			for (MotorPort port : PORTS) {
+				if ((mask & port.mask()) != 0) {
+					names.add(port.getJointName());
+				}
+			}
+			names = Collections.unmodifiableList(names);
+			batch[mask] = new JointState[RING_SIZE];
+			batchEfforts[mask] = new double[RING_SIZE][count];
+			for (int slot = 0; slot < RING_SIZE; slot++) {
+				JointState state = batchSink.newMessage();
+				state.setName(names);
+				state.setEffort(batchEfforts[mask][slot]);
+				batch[mask][slot] = state;
+			}
+		}
+	}
+
+	/**
+	 * Veröffentlicht die Kräfte für alle Ports der Maske. Ein einzelner Port
+	 * geht über joint_command, mehrere gemeinsam über joint_commands.
+	 * 
+	 * @param mask
+	 *            die Ports, siehe {@link MotorPort#mask()}
+	 * @param effortByPort
+	 *            die Kraft je Port, Index ist {@link MotorPort#ordinal()}
+	 */
+	void publish(int mask, double[] effortByPort) {
+		if (Integer.bitCount(mask) == 1) {
+			int port = Integer.numberOfTrailingZeros(mask);
+			publishSingle(port, effortByPort[port]);
+		} else if (mask != 0) {
+			publishBatch(mask, effortByPort);
+		}
+	}
+
+	private void publishSingle(int port, double effort) {
+		int slot = singleSlot[port];
+		JointCommand command = single[port][slot];
+		if (command.getEffort() != effort) {
+			slot = (slot + 1) % RING_SIZE;
+			singleSlot[port] = slot;
+			command = single[port][slot];
+			command.setEffort(effort);
+		}
+		singleSink.publish(command);
+	}
+
+	private void publishBatch(int mask, double[] effortByPort) {
+		int slot = batchSlot[mask];
+		double[] efforts = batchEfforts[mask][slot];
+		if (!matches(mask, efforts, effortByPort)) {
+			slot = (slot + 1) % RING_SIZE;
+			batchSlot[mask] = slot;
+			efforts = batchEfforts[mask][slot];
+			int i = 0;
+			for (MotorPort port : PORTS) {
+				if ((mask & port.mask()) != 0) {
+					efforts[i++] = effortByPort[port.ordinal()];
+				}
+			}
+			batch[mask][slot].setEffort(efforts);
+		}
+		batchSink.publish(batch[mask][slot]);
+	}
+
+	private static boolean matches(int mask, double[] efforts,
+			double[] effortByPort) {
+		int i = 0;
+		for (MotorPort port : PORTS) {
+			if ((mask & port.mask()) != 0
+					&& efforts[i++] != effortByPort[port.ordinal()]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
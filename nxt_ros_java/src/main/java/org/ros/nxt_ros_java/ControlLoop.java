@@ -0,0 +1,292 @@
+package org.ros.nxt_ros_java;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ruft einen Regelschritt mit fester Rate auf, statt in einer Schleife
+ * unbegrenzt zu drehen oder beliebig lange zu schlafen.
+ *
+ * Die Termine werden absolut aus dem Start und der Periode berechnet, nicht
+ * relativ zum Ende des vorigen Schritts; die Schleife driftet also nicht,
+ * auch wenn einzelne Schritte unterschiedlich lange dauern. Dauert ein
+ * Schritt länger als eine Periode, werden die verpassten Termine nicht
+ * nachgeholt, sondern als Überläufe gezählt, und es geht mit dem nächsten
+ * Termin im Raster weiter.
+ *
+ * Wie Device.needs_trigger in nxt_ros.py wird die tatsächliche Periode mit
+ * einem gleitenden Mittelwert verfolgt und gewarnt, wenn sie deutlich länger
+ * ist als die gewünschte. Zusätzlich wird die Verspätung jedes Schritts
+ * gegenüber seinem Termin gespeichert, aus der {@link #getJitterNanos(double)}
+ * Perzentile liefert.
+ */
+public class ControlLoop implements Runnable {
+
+	/**
+	 * Ein Regelschritt.
+	 */
+	public interface Step {
+
+		/**
+		 * Wird einmal je Periode aufgerufen und sollte deutlich kürzer als
+		 * eine Periode dauern.
+		 *
+		 * @return true, um weiterzulaufen, false, um die Schleife zu beenden
+		 */
+		boolean step() throws Exception;
+	}
+
+	// Anzahl der Verspätungen, aus denen die Perzentile berechnet werden
+	private static final int JITTER_SAMPLES = 1024;
+
+	// Gewichtung des gleitenden Mittelwerts der Periode wie in nxt_ros.py
+	private static final double PERIOD_SMOOTHING = 0.1;
+
+	// Ab diesem Vielfachen der gewünschten Periode wird gewarnt bzw. ein
+	// Fehler gemeldet, wie in nxt_ros.py
+	private static final double WARN_FACTOR = 1.2;
+	private static final double ERROR_FACTOR = 1.5;
+
+	private static final DebugLog LOG = new DebugLog(System.err, 64);
+	private static final int LOG_RATE_WARN = LOG.register(
+			"%s erreicht die Rate nicht: tatsächlich %.1f Hz, gewünscht %.1f Hz",
+			1000);
+	private static final int LOG_RATE_ERROR = LOG.register(
+			"%s erreicht die Rate bei weitem nicht: tatsächlich %.1f Hz, gewünscht %.1f Hz",
+			1000);
+
+	private final String name;
+	// Eigener Kanal, damit die Warnung einer Schleife die einer anderen
+	// nicht unterdrückt
+	private final DebugLog.Channel log = LOG.newChannel();
+	private final Step step;
+	private final long periodNanos;
+
+	private volatile boolean stopped = false;
+	private Thread thread;
+	private final CountDownLatch finished = new CountDownLatch(1);
+
+	// Statistik, nur im Schleifen-Thread geschrieben
+	private volatile long iterations = 0;
+	private volatile long overruns = 0;
+	private volatile double meanPeriodNanos;
+	private volatile long maxStepNanos = 0;
+	// Verspätungen in ns als Ringpuffer, unter jitterLock
+	private final long[] jitter = new long[JITTER_SAMPLES];
+	private int jitterCount = 0;
+	private final Object jitterLock = new Object();
+
+	/**
+	 * @param name
+	 *            Name für Warnungen und den Thread
+	 * @param rateHz
+	 *            die gewünschte Rate
+	 * @param step
+	 *            der Regelschritt
+	 */
+	public ControlLoop(String name, double rateHz, Step step) {
+		if (!(rateHz > 0) || Double.isInfinite(rateHz)) {
+			throw new IllegalArgumentException("Ungültige Rate: " + rateHz);
+		}
+		this.name = name;
+		this.step = step;
+		this.periodNanos = Math.max(1, (long) (1e9 / rateHz));
+		this.meanPeriodNanos = periodNanos;
+	}
+
+	/**
+	 * Startet die Schleife in einem eigenen Thread.
+	 *
+	 * @throws IllegalStateException
+	 *             wenn die Schleife bereits gestartet wurde
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			throw new IllegalStateException("Die Schleife läuft bereits");
+		}
+		thread = new Thread(this, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Beendet die Schleife nach dem gerade laufenden Schritt.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Blockiert, bis die Schleife beendet ist.
+	 *
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn die Schleife beendet ist, false bei
+	 *         Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean awaitFinished(long timeoutMillis)
+			throws InterruptedException {
+		if (timeoutMillis == 0) {
+			finished.await();
+			return true;
+		}
+		return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Führt die Schleife im aufrufenden Thread aus, bis der Schritt false
+	 * liefert oder {@link #stop()} aufgerufen wird. Eine Ausnahme im Schritt
+	 * beendet die Schleife und wird ausgegeben.
+	 */
+	@Override
+	public void run() {
+		try {
+			loop();
+		} catch (InterruptedException e) {
+			// Durch stop() abgebrochen
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			finished.countDown();
+		}
+	}
+
+	private void loop() throws Exception {
+		long start = System.nanoTime();
+		long deadline = start;
+		long lastStart = start;
+		while (!stopped) {
+			long wait = deadline - System.nanoTime();
+			if (wait > 0) {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			}
+			long now = System.nanoTime();
+			if (iterations > 0) {
+				updatePeriod(now - lastStart);
+			}
+			addJitter(now - deadline);
+			lastStart = now;
+			iterations++;
+
+			if (!step.step()) {
+				return;
+			}
+
+			long end = System.nanoTime();
+			if (end - now > maxStepNanos) {
+				maxStepNanos = end - now;
+			}
+			deadline += periodNanos;
+			if (end - deadline > 0) {
+				// Verpasste Termine werden übersprungen, nicht nachgeholt
+				long missed = (end - deadline) / periodNanos + 1;
+				overruns += missed;
+				deadline += missed * periodNanos;
+			}
+		}
+	}
+
+	private void updatePeriod(long measured) {
+		double mean = (1 - PERIOD_SMOOTHING) * meanPeriodNanos
+				+ PERIOD_SMOOTHING * measured;
+		meanPeriodNanos = mean;
+		if (mean > periodNanos * ERROR_FACTOR) {
+			log.log(LOG_RATE_ERROR, name, 1e9 / mean, 1e9 / periodNanos);
+		} else if (mean > periodNanos * WARN_FACTOR) {
+			log.log(LOG_RATE_WARN, name, 1e9 / mean, 1e9 / periodNanos);
+		}
+	}
+
+	private void addJitter(long lateness) {
+		synchronized (jitterLock) {
+			jitter[jitterCount % JITTER_SAMPLES] = lateness;
+			jitterCount++;
+		}
+	}
+
+	/**
+	 * @return die gewünschte Periode in ns
+	 */
+	public long getPeriodNanos() {
+		return periodNanos;
+	}
+
+	/**
+	 * @return der gleitende Mittelwert der tatsächlichen Periode in ns
+	 */
+	public double getMeasuredPeriodNanos() {
+		return meanPeriodNanos;
+	}
+
+	/**
+	 * @return die tatsächliche Rate in Hz nach dem gleitenden Mittelwert
+	 */
+	public double getMeasuredRate() {
+		return 1e9 / meanPeriodNanos;
+	}
+
+	/**
+	 * @return Anzahl der ausgeführten Schritte
+	 */
+	public long getIterationCount() {
+		return iterations;
+	}
+
+	/**
+	 * @return Anzahl der Termine, die verpasst wurden, weil ein Schritt zu
+	 *         lange gedauert hat
+	 */
+	public long getOverrunCount() {
+		return overruns;
+	}
+
+	/**
+	 * @return die längste Dauer eines Schritts in ns
+	 */
+	public long getMaxStepNanos() {
+		return maxStepNanos;
+	}
+
+	/**
+	 * Liefert ein Perzentil der Verspätung, mit der die letzten Schritte
+	 * gegenüber ihrem Termin begonnen haben.
+	 *
+	 * @param percentile
+	 *            zwischen 0 und 100, z.B. 50 für den Median oder 99
+	 * @return die Verspätung in ns oder 0, wenn noch kein Schritt lief
+	 */
+	public long getJitterNanos(double percentile) {
+		if (!(percentile >= 0 && percentile <= 100)) {
+			throw new IllegalArgumentException("Ungültiges Perzentil: "
+					+ percentile);
+		}
+		long[] sorted;
+		synchronized (jitterLock) {
+			sorted = Arrays.copyOf(jitter,
+					Math.min(jitterCount, JITTER_SAMPLES));
+		}
+		if (sorted.length == 0) {
+			return 0;
+		}
+		Arrays.sort(sorted);
+		int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, index)];
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"%s: %d Schritte, %.1f Hz (gewünscht %.1f Hz), Verspätung "
+						+ "Median %.2f ms, 99%% %.2f ms, max %.2f ms, "
+						+ "längster Schritt %.2f ms, %d Überläufe", name,
+				iterations, getMeasuredRate(), 1e9 / periodNanos,
+				getJitterNanos(50) / 1e6, getJitterNanos(99) / 1e6,
+				getJitterNanos(100) / 1e6, maxStepNanos / 1e6, overruns);
+	}
+}
@@ -0,0 +1,466 @@
+package org.ros.nxt_ros_java;
+
+import java.io.Closeable;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.IllegalFormatException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Gibt Debug-Meldungen aus, ohne den aufrufenden Thread aufzuhalten. Statt
+ * Zeichenketten zusammenzusetzen und synchron auszugeben, legt
+ * {@link #log(int)} nur die Argumente in einem vorab erzeugten Eintrag ab;
+ * formatiert und ausgegeben wird in einem eigenen Hintergrund-Thread.
+ *
+ * Die Einträge liegen in einem Ringpuffer fester Größe, in den beliebig viele
+ * Threads ohne Sperre schreiben. Ist er voll, werden Meldungen verworfen und
+ * gezählt, statt zu warten. Jede Meldungsart wird mit {@link #register} und
+ * einem Mindestabstand angemeldet; häufiger eintreffende Meldungen derselben
+ * Art, z.B. beim Abfragen eines Sensors in einer engen Schleife, werden nur
+ * gezählt und mit der nächsten ausgegebenen Meldung vermerkt. Der
+ * Mindestabstand gilt je {@link Channel Kanal}; mehrere Roboter können sich
+ * so ein Log teilen, ohne sich gegenseitig Meldungen zu unterdrücken.
+ *
+ * Der Hintergrund-Thread schläft, bis eine Meldung eintrifft, und wird mit
+ * {@link #close()} beendet.
+ *
+ * Vorlagen werden mit {@link String#format(String, Object...)} gefüllt; mit
+ * "%s" sieht ein double genauso aus wie beim Verketten.
+ */
+public final class DebugLog implements Closeable {
+
+	private static final int MAX_KINDS = 256;
+
+	// Anordnung der Argumente eines Eintrags: r für Objekte, d für Zahlen
+	private static final byte SHAPE_NONE = 0;
+	private static final byte SHAPE_R = 1;
+	private static final byte SHAPE_D = 2;
+	private static final byte SHAPE_RR = 3;
+	private static final byte SHAPE_RD = 4;
+	private static final byte SHAPE_DR = 5;
+	private static final byte SHAPE_RDD = 6;
+	private static final byte SHAPE_RRDD = 7;
+
+	/**
+	 * Ein vorab erzeugter Eintrag im Ringpuffer.
+	 */
+	private static final class Event {
+		int kind;
+		byte shape;
+		Object ref0;
+		Object ref1;
+		double num0;
+		double num1;
+		long suppressed;
+	}
+
+	private final PrintStream out;
+
+	private final Event[] events;
+	private final int mask;
+	// Vyukov-Warteschlange: Eintrag i ist frei für Position p, wenn
+	// sequences[i] == p, und gefüllt, wenn sequences[i] == p + 1
+	private final AtomicLongArray sequences;
+	private final AtomicLong tail = new AtomicLong();
+	// Nur im Hintergrund-Thread bzw. unter drainLock benutzt
+	private long head = 0;
+	private final Object drainLock = new Object();
+
+	private final String[] formats = new String[MAX_KINDS];
+	private final long[] minIntervalNanos = new long[MAX_KINDS];
+	private volatile int kinds = 0;
+	private final Channel defaultChannel = new Channel();
+
+	private final AtomicLong dropped = new AtomicLong();
+	private long reportedDropped = 0;
+
+	private final Thread writer;
+	private final Thread flushHook;
+	// Gesetzt, während der Hintergrund-Thread schläft; dann weckt ihn publish
+	private volatile boolean writerWaiting = false;
+	private volatile boolean closed = false;
+
+	/**
+	 * Ein Kanal des Logs mit eigenen Mindestabständen, z.B. einer je Roboter
+	 * einer Flotte. Alle Kanäle teilen sich die Meldungsarten, den Ringpuffer
+	 * und den Hintergrund-Thread.
+	 */
+	public final class Channel {
+
+		private final AtomicLongArray lastLogged = new AtomicLongArray(
+				MAX_KINDS);
+		private final AtomicLongArray suppressed = new AtomicLongArray(
+				MAX_KINDS);
+
+		private Channel() {
+		}
+
+		public void log(int kind) {
+			int slot = claim(this, kind);
+			if (slot >= 0) {
+				publish(slot, SHAPE_NONE, null, null, 0, 0);
+			}
+		}
+
+		public void log(int kind, Object a) {
+			int slot = claim(this, kind);
+			if (slot >= 0) {
+				publish(slot, SHAPE_R, a, null, 0, 0);
+			}
+		}
+
+		public void log(int kind, double a) {
+			int slot = claim(this, kind);
+			if (slot >= 0) {
+				publish(slot, SHAPE_D, null, null, a, 0);
+			}
+		}
+
+		public void log(int kind, Object a, Object b) {
+			int slot = claim(this, kind);
+			if (slot >= 0) {
+				publish(slot, SHAPE_RR, a, b, 0, 0);
+			}
+		}
+
+		public void log(int kind, Object a, double b) {
+			int slot = claim(this, kind);
+			if (slot >= 0) {
+				publish(slot, SHAPE_RD, a, null, b, 0);
+			}
+		}
+
+		public void log(int kind, double a, Object b) {
+			int slot = claim(this, kind);
+			if (slot >= 0) {
+				publish(slot, SHAPE_DR, b, null, a, 0);
+			}
+		}
+
+		public void log(int kind, Object a, double b, double c) {
+			int slot = claim(this, kind);
+			if (slot >= 0) {
+				publish(slot, SHAPE_RDD, a, null, b, c);
+			}
+		}
+
+		public void log(int kind, Object a, Object b, double c, double d) {
+			int slot = claim(this, kind);
+			if (slot >= 0) {
+				publish(slot, SHAPE_RRDD, a, b, c, d);
+			}
+		}
+	}
+
+	/**
+	 * @param out
+	 *            wohin ausgegeben wird, z.B. System.out
+	 * @param capacity
+	 *            Anzahl der Einträge im Ringpuffer; wird auf eine
+	 *            Zweierpotenz aufgerundet
+	 */
+	public DebugLog(PrintStream out, int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Ungültige Größe: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.out = out;
+		this.events = new Event[size];
+		this.mask = size - 1;
+		this.sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			events[i] = new Event();
+			sequences.set(i, i);
+		}
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				while (true) {
+					if (drain() > 0) {
+						continue;
+					}
+					if (closed) {
+						return;
+					}
+					// Erst ankündigen, dann nachsehen: Eine Meldung, die
+					// danach veröffentlicht wird, sieht writerWaiting und
+					// weckt den Thread
+					writerWaiting = true;
+					if (!hasPending() && !closed) {
+						LockSupport.park(DebugLog.this);
+					}
+					writerWaiting = false;
+				}
+			}
+		}, "nxt-debug-log");
+		writer.setDaemon(true);
+		writer.start();
+
+		// Was beim Beenden noch im Puffer liegt, wird noch ausgegeben
+		flushHook = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+				DebugLog.this.out.flush();
+			}
+		}, "nxt-debug-log-flush");
+		Runtime.getRuntime().addShutdownHook(flushHook);
+	}
+
+	/**
+	 * Erzeugt einen Kanal mit eigenen Mindestabständen.
+	 */
+	public Channel newChannel() {
+		return new Channel();
+	}
+
+	/**
+	 * Meldet eine Meldungsart an.
+	 *
+	 * @param format
+	 *            die Vorlage für {@link String#format(String, Object...)}
+	 * @param minIntervalMillis
+	 *            Mindestabstand zwischen zwei ausgegebenen Meldungen dieser
+	 *            Art; 0 gibt jede Meldung aus
+	 * @return die Nummer, unter der die Meldungen geloggt werden
+	 */
+	public synchronized int register(String format, long minIntervalMillis) {
+		int kind = kinds;
+		if (kind == MAX_KINDS) {
+			throw new IllegalStateException("Zu viele Meldungsarten");
+		}
+		formats[kind] = format;
+		minIntervalNanos[kind] = TimeUnit.MILLISECONDS
+				.toNanos(minIntervalMillis);
+		// Schreiben von kinds veröffentlicht die Vorlage
+		kinds = kind + 1;
+		return kind;
+	}
+
+	public void log(int kind) {
+		defaultChannel.log(kind);
+	}
+
+	public void log(int kind, Object a) {
+		defaultChannel.log(kind, a);
+	}
+
+	public void log(int kind, double a) {
+		defaultChannel.log(kind, a);
+	}
+
+	public void log(int kind, Object a, Object b) {
+		defaultChannel.log(kind, a, b);
+	}
+
+	public void log(int kind, Object a, double b) {
+		defaultChannel.log(kind, a, b);
+	}
+
+	public void log(int kind, double a, Object b) {
+		defaultChannel.log(kind, a, b);
+	}
+
+	public void log(int kind, Object a, double b, double c) {
+		defaultChannel.log(kind, a, b, c);
+	}
+
+	public void log(int kind, Object a, Object b, double c, double d) {
+		defaultChannel.log(kind, a, b, c, d);
+	}
+
+	/**
+	 * Prüft den Mindestabstand und reserviert einen Eintrag.
+	 *
+	 * @return der Index des Eintrags oder -1, wenn die Meldung unterdrückt
+	 *         oder verworfen wird oder das Log geschlossen ist
+	 */
+	private int claim(Channel channel, int kind) {
+		if (kind < 0 || kind >= kinds) {
+			throw new IllegalArgumentException("Unbekannte Meldungsart: "
+					+ kind);
+		}
+		if (closed) {
+			return -1;
+		}
+		long interval = minIntervalNanos[kind];
+		AtomicLongArray suppressed = channel.suppressed;
+		if (interval > 0) {
+			long now = System.nanoTime();
+			long last = channel.lastLogged.get(kind);
+			if ((last != 0 && now - last < interval)
+					|| !channel.lastLogged.compareAndSet(kind, last, now)) {
+				suppressed.incrementAndGet(kind);
+				return -1;
+			}
+		}
+		long position = tail.get();
+		while (true) {
+			int slot = (int) (position & mask);
+			long difference = sequences.get(slot) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					Event event = events[slot];
+					event.kind = kind;
+					event.suppressed = interval > 0 ? suppressed.getAndSet(
+							kind, 0) : 0;
+					return slot;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				// Voll: nicht warten
+				dropped.incrementAndGet();
+				return -1;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	private void publish(int slot, byte shape, Object ref0, Object ref1,
+			double num0, double num1) {
+		Event event = events[slot];
+		event.shape = shape;
+		event.ref0 = ref0;
+		event.ref1 = ref1;
+		event.num0 = num0;
+		event.num1 = num1;
+		// Die Position wurde in claim um 1 erhöht; erst jetzt ist der
+		// Eintrag für den Hintergrund-Thread sichtbar. Kein lazySet: Das
+		// Schreiben muss vor dem Lesen von writerWaiting sichtbar sein
+		long position = sequences.get(slot);
+		sequences.set(slot, position + 1);
+		if (writerWaiting) {
+			LockSupport.unpark(writer);
+		}
+	}
+
+	private boolean hasPending() {
+		synchronized (drainLock) {
+			return sequences.get((int) (head & mask)) == head + 1;
+		}
+	}
+
+	/**
+	 * Gibt alle gefüllten Einträge aus.
+	 *
+	 * @return Anzahl der ausgegebenen Einträge
+	 */
+	private int drain() {
+		synchronized (drainLock) {
+			int count = 0;
+			while (true) {
+				int slot = (int) (head & mask);
+				if (sequences.get(slot) != head + 1) {
+					break;
+				}
+				Event event = events[slot];
+				String line = format(event);
+				event.ref0 = null;
+				event.ref1 = null;
+				sequences.lazySet(slot, head + events.length);
+				head++;
+				out.println(line);
+				count++;
+			}
+			long droppedNow = dropped.get();
+			if (droppedNow != reportedDropped) {
+				out.println("(" + (droppedNow - reportedDropped)
+						+ " Debug-Meldungen verworfen)");
+				reportedDropped = droppedNow;
+			}
+			return count;
+		}
+	}
+
+	private String format(Event event) {
+		Object[] args;
+		switch (event.shape) {
+		case SHAPE_R:
+			args = new Object[] { event.ref0 };
+			break;
+		case SHAPE_D:
+			args = new Object[] { event.num0 };
+			break;
+		case SHAPE_RR:
+			args = new Object[] { event.ref0, event.ref1 };
+			break;
+		case SHAPE_RD:
+			args = new Object[] { event.ref0, event.num0 };
+			break;
+		case SHAPE_DR:
+			args = new Object[] { event.num0, event.ref0 };
+			break;
+		case SHAPE_RDD:
+			args = new Object[] { event.ref0, event.num0, event.num1 };
+			break;
+		case SHAPE_RRDD:
+			args = new Object[] { event.ref0, event.ref1, event.num0,
+					event.num1 };
+			break;
+		default:
+			args = new Object[0];
+		}
+		String line;
+		try {
+			line = String.format(formats[event.kind], args);
+		} catch (IllegalFormatException e) {
+			// Eine fehlerhafte Vorlage soll den Hintergrund-Thread nicht
+			// beenden
+			line = formats[event.kind] + " " + Arrays.toString(args);
+		}
+		if (event.suppressed > 0) {
+			line += " (" + event.suppressed + " gleiche Meldungen unterdrückt)";
+		}
+		return line;
+	}
+
+	/**
+	 * Gibt aus, was noch im Puffer liegt, und beendet den Hintergrund-Thread.
+	 * Danach werden alle Meldungen ignoriert. Mehrfacher Aufruf schadet
+	 * nicht.
+	 */
+	@Override
+	public void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		LockSupport.unpark(writer);
+		boolean interrupted = false;
+		while (writer.isAlive()) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		drain();
+		out.flush();
+		try {
+			Runtime.getRuntime().removeShutdownHook(flushHook);
+		} catch (IllegalStateException e) {
+			// Die JVM wird bereits beendet; der Hook gibt nichts mehr aus
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return Anzahl der Meldungen, die verworfen wurden, weil der Puffer
+	 *         voll war
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+}
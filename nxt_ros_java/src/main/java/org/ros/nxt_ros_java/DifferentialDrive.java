@@ -0,0 +1,345 @@
+package org.ros.nxt_ros_java;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steuert zwei Antriebsräder über Soll-Geschwindigkeiten für Fahrt und Drehung,
+ * statt beide Motoren mit derselben Kraft anzusteuern.
+ *
+ * Jedes Rad folgt einem Soll-Drehwinkel, der in jedem Regelschritt um seine
+ * Soll-Geschwindigkeit weitergezählt wird. Der Regler sieht dabei über
+ * joint_state, wie weit das Rad hinter dem Soll liegt, sodass ein langsameres
+ * Rad aufholt und der Roboter geradeaus fährt, statt eine Kurve zu ziehen.
+ * Geregelt wird mit fester Rate auf dem gemeinsamen Scheduler des Talkers;
+ * Kommandos werden nur veröffentlicht, wenn sich die Kraft eines Rades in der
+ * Auflösung des Treibers geändert hat.
+ */
+public class DifferentialDrive {
+
+	/**
+	 * Voreingestellte Regelrate in Hz, passend zur Rate, mit der der Treiber
+	 * joint_state veröffentlicht.
+	 */
+	public static final int DEFAULT_RATE_HZ = 20;
+
+	// Kraft je rad/s, die ein NXT-Motor ohne Last etwa braucht
+	private static final double FEED_FORWARD = 1.0 / 17.0;
+
+	private static final double[] STOP = new double[2];
+
+	// Auflösung der Kraft im Treiber (POWER_TO_NM)
+	private static final double EFFORT_RESOLUTION = 0.01;
+
+	// So weit darf ein Rad hinter seinem Soll liegen, bevor das Soll
+	// festgehalten wird, z.B. wenn das Rad blockiert
+	private static final double MAX_LAG = Math.toRadians(90);
+
+	private final Talker talker;
+	private final MotorPort left;
+	private final MotorPort right;
+	private final double wheelRadius;
+	private final double trackWidth;
+
+	private final PidController leftPid;
+	private final PidController rightPid;
+	private final double maxEffort;
+
+	// Sollwerte, werden von beliebigen Threads gesetzt
+	private volatile double linear = 0;
+	private volatile double angular = 0;
+
+	// Zustand des Regelkreises, nur im Scheduler-Thread benutzt
+	private final MotorPort[] ports;
+	private final double[] efforts = new double[2];
+	private final double[] targetPositions = new double[2];
+	private final long[] lastSequence = new long[2];
+	private long lastStepNanos = 0;
+	private int lastLeftPower = Integer.MIN_VALUE;
+	private int lastRightPower = Integer.MIN_VALUE;
+
+	private volatile long published = 0;
+	private volatile long skipped = 0;
+
+	private ScheduledFuture<?> task;
+	// Geplantes Zurücksetzen einer befristeten Geschwindigkeit; unter this
+	private ScheduledFuture<?> timedStop;
+	private long velocityVersion = 0;
+
+	/**
+	 * Erzeugt einen Antrieb für den Standardaufbau, bei dem Motor C links
+	 * und Motor B rechts sitzt.
+	 */
+	public DifferentialDrive(Talker talker) {
+		this(talker, MotorPort.C, MotorPort.B, talker.getWheelRadius(), 0.112);
+	}
+
+	/**
+	 * @param left
+	 *            der Motor des linken Rades
+	 * @param right
+	 *            der Motor des rechten Rades
+	 * @param wheelRadius
+	 *            der Radius der Räder in m
+	 * @param trackWidth
+	 *            der Abstand der Räder in m
+	 */
+	public DifferentialDrive(Talker talker, MotorPort left, MotorPort right,
+			double wheelRadius, double trackWidth) {
+		this(talker, left, right, wheelRadius, trackWidth, new PidController(
+				0.8, 0.2, 0.0, 1.0), new PidController(0.8, 0.2, 0.0, 1.0));
+	}
+
+	/**
+	 * @param leftPid
+	 *            Regler für den Rückstand des linken Rades in rad; seine
+	 *            Begrenzung ist zugleich die größte Kraft
+	 * @param rightPid
+	 *            Regler für den Rückstand des rechten Rades in rad
+	 */
+	public DifferentialDrive(Talker talker, MotorPort left, MotorPort right,
+			double wheelRadius, double trackWidth, PidController leftPid,
+			PidController rightPid) {
+		if (left == right) {
+			throw new IllegalArgumentException(
+					"Linkes und rechtes Rad brauchen verschiedene Motoren");
+		}
+		if (!(wheelRadius > 0) || !(trackWidth > 0)) {
+			throw new IllegalArgumentException(
+					"Radius und Spurweite müssen positiv sein");
+		}
+		this.talker = talker;
+		this.left = left;
+		this.right = right;
+		this.wheelRadius = wheelRadius;
+		this.trackWidth = trackWidth;
+		this.leftPid = leftPid;
+		this.rightPid = rightPid;
+		this.maxEffort = Math.min(leftPid.getOutputLimit(),
+				rightPid.getOutputLimit());
+		this.ports = new MotorPort[] { left, right };
+	}
+
+	/**
+	 * Setzt die Soll-Geschwindigkeiten. Sie gelten ab dem nächsten
+	 * Regelschritt.
+	 *
+	 * @param linearMetersPerSecond
+	 *            Fahrt geradeaus in m/s; negativ fährt rückwärts
+	 * @param angularRadiansPerSecond
+	 *            Drehung in rad/s; positiv dreht nach links
+	 */
+	public synchronized void setVelocity(double linearMetersPerSecond,
+			double angularRadiansPerSecond) {
+		replaceVelocity(linearMetersPerSecond, angularRadiansPerSecond);
+	}
+
+	/**
+	 * Setzt die Soll-Geschwindigkeiten für die gegebene Dauer und kehrt sofort
+	 * zurück. Danach wird auf dem gemeinsamen Scheduler wieder 0 gesetzt. Wie
+	 * bei den befristeten Motorkommandos des Talkers ersetzt jede neuere
+	 * Geschwindigkeit die alte samt ihrem geplanten Zurücksetzen.
+	 *
+	 * @param durationMillis
+	 *            wie lange die Geschwindigkeiten gelten
+	 */
+	public synchronized void setVelocity(double linearMetersPerSecond,
+			double angularRadiansPerSecond, long durationMillis) {
+		final long version = replaceVelocity(linearMetersPerSecond,
+				angularRadiansPerSecond);
+		timedStop = Talker.MOTOR_SCHEDULER.schedule(new Runnable() {
+			@Override
+			public void run() {
+				expireVelocity(version);
+			}
+		}, durationMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Übernimmt neue Soll-Geschwindigkeiten und verwirft ein noch geplantes
+	 * Zurücksetzen. Nur unter this aufrufen.
+	 *
+	 * @return die Version der neuen Geschwindigkeiten
+	 */
+	private long replaceVelocity(double linearMetersPerSecond,
+			double angularRadiansPerSecond) {
+		if (timedStop != null) {
+			timedStop.cancel(false);
+			timedStop = null;
+		}
+		this.linear = linearMetersPerSecond;
+		this.angular = angularRadiansPerSecond;
+		return ++velocityVersion;
+	}
+
+	private synchronized void expireVelocity(long version) {
+		// Ein bereits laufendes Zurücksetzen lässt sich nicht mehr abbrechen;
+		// es darf dann keine neuere Geschwindigkeit überschreiben
+		if (version == velocityVersion) {
+			timedStop = null;
+			linear = 0;
+			angular = 0;
+		}
+	}
+
+	public double getLinearVelocity() {
+		return linear;
+	}
+
+	public double getAngularVelocity() {
+		return angular;
+	}
+
+	/**
+	 * Startet die Regelung mit {@link #DEFAULT_RATE_HZ}.
+	 */
+	public void start() {
+		start(DEFAULT_RATE_HZ);
+	}
+
+	/**
+	 * Startet die Regelung mit der gegebenen Rate. Die Räder übernehmen als
+	 * Soll ihre aktuelle Position, der Roboter steht also, bis
+	 * {@link #setVelocity(double, double)} aufgerufen wird.
+	 *
+	 * @throws IllegalStateException
+	 *             wenn die Regelung bereits läuft
+	 */
+	public synchronized void start(int rateHz) {
+		if (task != null) {
+			throw new IllegalStateException("Die Regelung läuft bereits");
+		}
+		if (rateHz <= 0) {
+			throw new IllegalArgumentException("Ungültige Rate: " + rateHz);
+		}
+		long period = TimeUnit.SECONDS.toNanos(1) / rateHz;
+		// Der Zustand wird im Scheduler-Thread übernommen, damit er nur dort
+		// angefasst wird
+		Talker.MOTOR_SCHEDULER.execute(new Runnable() {
+			@Override
+			public void run() {
+				reset();
+			}
+		});
+		task = Talker.MOTOR_SCHEDULER.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				step();
+			}
+		}, period, period, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Beendet die Regelung und stoppt beide Räder. Der Stopp wird im
+	 * Scheduler-Thread veröffentlicht, also erst nach einem gerade laufenden
+	 * Regelschritt, damit dieser ihn nicht überschreibt.
+	 */
+	public synchronized void stop() {
+		if (task != null) {
+			task.cancel(false);
+			task = null;
+		}
+		replaceVelocity(0, 0);
+		Talker.MOTOR_SCHEDULER.execute(new Runnable() {
+			@Override
+			public void run() {
+				talker.setEfforts(ports, STOP);
+			}
+		});
+	}
+
+	public synchronized boolean isRunning() {
+		return task != null;
+	}
+
+	/**
+	 * @return Anzahl der veröffentlichten Kommandos
+	 */
+	public long getPublishedCommands() {
+		return published;
+	}
+
+	/**
+	 * @return Anzahl der Regelschritte, in denen sich keine Kraft geändert
+	 *         hat und daher nichts veröffentlicht wurde
+	 */
+	public long getSkippedCommands() {
+		return skipped;
+	}
+
+	private void reset() {
+		targetPositions[0] = talker.getJointPosition(left);
+		targetPositions[1] = talker.getJointPosition(right);
+		lastSequence[0] = talker.getJointState(left).getStamp().getSequence();
+		lastSequence[1] = talker.getJointState(right).getStamp().getSequence();
+		leftPid.reset();
+		rightPid.reset();
+		lastStepNanos = System.nanoTime();
+		lastLeftPower = Integer.MIN_VALUE;
+		lastRightPower = Integer.MIN_VALUE;
+	}
+
+	/**
+	 * Ein Regelschritt; erzeugt keine Objekte.
+	 */
+	private void step() {
+		long now = System.nanoTime();
+		double dt = (now - lastStepNanos) / 1e9;
+		lastStepNanos = now;
+
+		double v = linear;
+		double w = angular;
+		double halfTrack = trackWidth / 2;
+		double leftVelocity = (v - w * halfTrack) / wheelRadius;
+		double rightVelocity = (v + w * halfTrack) / wheelRadius;
+
+		efforts[0] = wheelEffort(0, left, leftPid, leftVelocity, dt);
+		efforts[1] = wheelEffort(1, right, rightPid, rightVelocity, dt);
+
+		int leftPower = (int) Math.round(efforts[0] / EFFORT_RESOLUTION);
+		int rightPower = (int) Math.round(efforts[1] / EFFORT_RESOLUTION);
+		if (leftPower == lastLeftPower && rightPower == lastRightPower) {
+			skipped++;
+			return;
+		}
+		lastLeftPower = leftPower;
+		lastRightPower = rightPower;
+		talker.setEfforts(ports, efforts);
+		published++;
+	}
+
+	private double wheelEffort(int wheel, MotorPort port, PidController pid,
+			double velocity, double dt) {
+		targetPositions[wheel] += velocity * dt;
+		JointStateSample state = talker.getJointState(port);
+		double feedForward = velocity * FEED_FORWARD;
+		if (state.getStamp().getSequence() == 0) {
+			// Ohne Rückmeldung nur gesteuert fahren
+			return clamp(feedForward);
+		}
+		if (lastSequence[wheel] == 0) {
+			// Erste Rückmeldung: Soll an der tatsächlichen Position ausrichten
+			targetPositions[wheel] = state.getPosition();
+		}
+		double lag = targetPositions[wheel] - state.getPosition();
+		if (lag > MAX_LAG) {
+			targetPositions[wheel] = state.getPosition() + MAX_LAG;
+			lag = MAX_LAG;
+		} else if (lag < -MAX_LAG) {
+			targetPositions[wheel] = state.getPosition() - MAX_LAG;
+			lag = -MAX_LAG;
+		}
+		boolean fresh = state.getStamp().getSequence() != lastSequence[wheel];
+		lastSequence[wheel] = state.getStamp().getSequence();
+		// Ohne neue Rückmeldung wird der I-Anteil nicht weiter aufsummiert
+		double correction = pid.update(lag, fresh ? dt : 0);
+		if (velocity == 0 && Math.abs(lag) < Math.toRadians(2)) {
+			return 0;
+		}
+		return clamp(feedForward + correction);
+	}
+
+	private double clamp(double effort) {
+		return Math.max(-maxEffort, Math.min(maxEffort, effort));
+	}
+}
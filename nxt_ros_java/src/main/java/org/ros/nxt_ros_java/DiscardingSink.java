@@ -0,0 +1,35 @@
+package org.ros.nxt_ros_java;
+
+import org.ros.message.MessageFactory;
+
+/**
+ * Erzeugt Nachrichten über eine {@link MessageFactory} und verwirft sie beim
+ * Veröffentlichen. Wird ohne ROS-Master benutzt, z.B. bei {@link LogReplay}.
+ */
+class DiscardingSink<T> implements MessageSink<T> {
+
+	private final MessageFactory factory;
+	private final String type;
+
+	private volatile long published = 0;
+
+	DiscardingSink(MessageFactory factory, String type) {
+		this.factory = factory;
+		this.type = type;
+	}
+
+	@Override
+	public T newMessage() {
+		return factory.<T> newFromType(type);
+	}
+
+	@Override
+	public void publish(T message) {
+		// Nur unter der Kommandosperre des Talkers aufgerufen
+		published++;
+	}
+
+	long getPublishedCount() {
+		return published;
+	}
+}
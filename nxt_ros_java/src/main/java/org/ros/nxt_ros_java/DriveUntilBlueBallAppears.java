@@ -25,10 +25,9 @@ public class DriveUntilBlueBallAppears {
 		System.out.println("Warte auf Initialisierung ....");
 		nxth.warteAufInitialisierung();
 		System.out.println("Initialisierung abgeschlossen done");
-		while(nxth.leseFarbe()!=Farbe.ROT){
-			nxth.bewegeZweiMotoren("b", "c", 200, 1);
-			System.out.println("Wahrgenommene Farbe ist " + nxth.leseFarbe());
-		}
+		nxth.bewegeZweiMotoren("b", "c", 0, 1);
+		nxth.warteAufFarbe(Farbe.ROT, 0);
+		nxth.stoppeMotoren();
 		System.out.println("Hindernis gesehen!");
 
 	}
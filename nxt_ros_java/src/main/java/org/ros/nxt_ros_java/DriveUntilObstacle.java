@@ -16,19 +16,33 @@
 
 package org.ros.nxt_ros_java;
 
+import java.io.File;
+
 import org.ros.nxt_ros_java.NxtJavaHandler;
 
 public class DriveUntilObstacle {
+	/**
+	 * Mit "--replay verzeichnis" läuft das Programm ohne Roboter gegen eine
+	 * Aufzeichnung aus {@link NxtJavaHandler#starteAufzeichnung(String)}.
+	 */
 	public static void main(String[] argv) throws Exception {
-		NxtJavaHandler nxth = new NxtJavaHandler(argv);
+		NxtJavaHandler nxth;
+		if (argv.length == 2 && argv[0].equals("--replay")) {
+			LogReplay replay = new LogReplay(new File(argv[1]),
+					NxtJavaHandler.AUFZEICHNUNG_PRAEFIX);
+			replay.start();
+			nxth = new NxtJavaHandler(replay);
+		} else {
+			nxth = new NxtJavaHandler(argv);
+		}
 		System.out.println("Warte auf Initialisierung ....");
 		nxth.warteAufInitialisierung();
 		System.out.println("Initialisierung abgeschlossen done");
-		while(nxth.leseDistanz()>0.3){
-			nxth.bewegeZweiMotoren("b", "c", 200, 1);
-//			System.out.println("Tasterzustand ist " + nxth.leseTaster());
-//			Thread.sleep(500);
-		}
+		nxth.aktiviereHindernisStopp(0.3);
+		nxth.fahre(0.15, 0);
+		nxth.warteAufDistanzUnter(0.3, 5, 0);
+		nxth.stoppeMotoren();
+		nxth.deaktiviereHindernisStopp();
 		System.out.println("Hindernis gesehen!");
 
 	}
@@ -0,0 +1,76 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Unveränderlicher Zustand eines Motors, wie ihn der Treiber zuletzt auf
+ * joint_state veröffentlicht hat.
+ */
+public final class JointStateSample {
+
+	/**
+	 * Zustand eines Motors, von dem noch keine Nachricht eingetroffen ist.
+	 */
+	static final JointStateSample NONE = new JointStateSample(0, 0, 0,
+			SensorStamp.NONE);
+
+	private final double position;
+	private final double velocity;
+	private final double effort;
+	private final SensorStamp stamp;
+
+	private JointStateSample(double position, double velocity, double effort,
+			SensorStamp stamp) {
+		this.position = position;
+		this.velocity = velocity;
+		this.effort = effort;
+		this.stamp = stamp;
+	}
+
+	/**
+	 * @return der Drehwinkel des Motors in rad seit dem Start des Treibers
+	 */
+	public double getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return der Drehwinkel des Motors in Grad seit dem Start des Treibers
+	 */
+	public double getPositionDegrees() {
+		return Math.toDegrees(position);
+	}
+
+	/**
+	 * @return die Drehgeschwindigkeit in rad/s oder Double.NaN, wenn der
+	 *         Treiber keine mitgeschickt hat
+	 */
+	public double getVelocity() {
+		return velocity;
+	}
+
+	/**
+	 * @return die Stärke, mit der der Motor gerade angesteuert wird, in Nm
+	 *         oder Double.NaN, wenn der Treiber keine mitgeschickt hat
+	 */
+	public double getEffort() {
+		return effort;
+	}
+
+	/**
+	 * @return Empfangszeit und Sequenznummer der Nachricht
+	 */
+	public SensorStamp getStamp() {
+		return stamp;
+	}
+
+	JointStateSample next(double pPosition, double pVelocity, double pEffort,
+			long receivedNanos, long receivedWallNanos, long headerStampNanos) {
+		return new JointStateSample(pPosition, pVelocity, pEffort, stamp.next(
+				receivedNanos, receivedWallNanos, headerStampNanos));
+	}
+
+	@Override
+	public String toString() {
+		return "JointStateSample[position=" + position + ", velocity="
+				+ velocity + ", effort=" + effort + ", " + stamp + "]";
+	}
+}
@@ -0,0 +1,275 @@
+package org.ros.nxt_ros_java;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spielt eine Aufzeichnung eines {@link MessageRecorder}s in einen
+ * {@link Talker} ein, der ohne ROS-Master läuft. Steuerprogramme wie
+ * DriveUntilObstacle lassen sich so ohne Roboter testen und vermessen: Sie
+ * sehen die aufgezeichneten Sensorwerte, ihre Motorkommandos werden
+ * verworfen.
+ *
+ * Die Einträge werden in der aufgezeichneten Reihenfolge aus einem Thread
+ * eingespielt, in Echtzeit, beschleunigt oder so schnell wie möglich. Gelesen
+ * wird über einen {@link RecordingReader}, der Speicherbedarf hängt also
+ * nicht von der Länge der Aufzeichnung ab. Aufgezeichnete Motorkommandos
+ * werden nur gezählt.
+ */
+public class LogReplay implements Runnable {
+
+	/**
+	 * Geschwindigkeit, mit der ohne Pausen eingespielt wird.
+	 */
+	public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+	// Längere Pausen, z.B. zwischen zwei aufgezeichneten Läufen, werden auf
+	// diese Dauer gekürzt
+	private static final long MAX_GAP_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private static final MotorPort[] PORTS = MotorPort.values();
+
+	private final Talker talker;
+	private final File directory;
+	private final String prefix;
+
+	private volatile double speed = 1;
+	private volatile boolean stopped = false;
+
+	private volatile long replayed = 0;
+	private volatile long recordedCommands = 0;
+
+	private Thread thread;
+	private final CountDownLatch finished = new CountDownLatch(1);
+
+	// Für updateJointStates wiederverwendet, nur im Wiedergabe-Thread benutzt
+	private final List<List<String>> jointNames;
+	private final double[] position = new double[1];
+	private final double[] velocity = new double[1];
+	private final double[] effort = new double[1];
+
+	/**
+	 * Spielt in einen neuen Talker ein, siehe {@link #getTalker()}.
+	 *
+	 * @param directory
+	 *            das Verzeichnis der Aufzeichnung
+	 * @param prefix
+	 *            der Präfix, mit dem aufgezeichnet wurde
+	 */
+	public LogReplay(File directory, String prefix) {
+		this(new Talker(), directory, prefix);
+	}
+
+	/**
+	 * Spielt in den gegebenen Talker ein. Er darf nicht mit einem Master
+	 * verbunden sein und wird dafür ohne Master gestartet.
+	 *
+	 * @throws IllegalStateException
+	 *             wenn der Talker verbunden ist
+	 */
+	public LogReplay(Talker talker, File directory, String prefix) {
+		talker.startOffline();
+		this.talker = talker;
+		this.directory = directory;
+		this.prefix = prefix;
+		List<List<String>> names = new ArrayList<List<String>>(
+				PORTS.length);
+		for (MotorPort port : PORTS) {
+			names.add(Collections.singletonList(port.getJointName()));
+		}
+		this.jointNames = names;
+	}
+
+	public Talker getTalker() {
+		return talker;
+	}
+
+	/**
+	 * Setzt die Geschwindigkeit der Wiedergabe; sie gilt ab dem nächsten
+	 * Eintrag.
+	 *
+	 * @param pSpeed
+	 *            1 für Echtzeit, 2 für doppelte Geschwindigkeit usw. oder
+	 *            {@link #AS_FAST_AS_POSSIBLE}
+	 */
+	public void setSpeed(double pSpeed) {
+		if (!(pSpeed > 0)) {
+			throw new IllegalArgumentException("Ungültige Geschwindigkeit: "
+					+ pSpeed);
+		}
+		this.speed = pSpeed;
+	}
+
+	public double getSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Startet die Wiedergabe in einem eigenen Thread.
+	 *
+	 * @throws IllegalStateException
+	 *             wenn die Wiedergabe bereits gestartet wurde
+	 */
+	public synchronized void start() {
+		if (thread != null) {
+			throw new IllegalStateException("Die Wiedergabe läuft bereits");
+		}
+		thread = new Thread(this, "nxt-replay");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Bricht die Wiedergabe ab.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		if (thread != null) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Blockiert, bis die Wiedergabe beendet ist.
+	 *
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn die Wiedergabe beendet ist, false bei
+	 *         Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean awaitFinished(long timeoutMillis)
+			throws InterruptedException {
+		if (timeoutMillis == 0) {
+			finished.await();
+			return true;
+		}
+		return finished.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Spielt die Aufzeichnung im aufrufenden Thread ein. Fehler beim Lesen
+	 * werden ausgegeben.
+	 */
+	@Override
+	public void run() {
+		try {
+			replay();
+		} catch (IOException e) {
+			e.printStackTrace();
+		} catch (InterruptedException e) {
+			// Durch stop() abgebrochen
+		}
+	}
+
+	/**
+	 * Spielt die Aufzeichnung im aufrufenden Thread ein.
+	 *
+	 * @return Anzahl der eingespielten Einträge
+	 * @throws IOException
+	 *             wenn die Aufzeichnung nicht gelesen werden kann
+	 * @throws InterruptedException
+	 *             wenn die Wiedergabe abgebrochen wurde
+	 */
+	public long replay() throws IOException, InterruptedException {
+		RecordingReader reader = new RecordingReader(directory, prefix);
+		try {
+			long startNanos = System.nanoTime();
+			long elapsed = 0;
+			long lastTime = 0;
+			boolean first = true;
+			while (!stopped && reader.next()) {
+				long time = reader.getTimeNanos();
+				if (!first) {
+					elapsed += Math.min(MAX_GAP_NANOS,
+							Math.max(0, time - lastTime));
+				}
+				first = false;
+				lastTime = time;
+				double currentSpeed = speed;
+				if (currentSpeed != AS_FAST_AS_POSSIBLE) {
+					long due = startNanos + (long) (elapsed / currentSpeed);
+					long wait = due - System.nanoTime();
+					if (wait > 0) {
+						TimeUnit.NANOSECONDS.sleep(wait);
+					}
+				}
+				apply(reader);
+			}
+			return replayed;
+		} finally {
+			reader.close();
+			finished.countDown();
+		}
+	}
+
+	private void apply(RecordingReader reader) {
+		long stamp = reader.getHeaderStampNanos();
+		switch (reader.getKind()) {
+		case SENSOR:
+			applySensor(reader, stamp);
+			break;
+		case JOINT_STATE:
+			position[0] = reader.getValue(0);
+			velocity[0] = reader.getValue(1);
+			effort[0] = reader.getValue(2);
+			talker.updateJointStates(
+					jointNames.get(reader.getMotorPort().ordinal()), position,
+					velocity, effort, stamp);
+			break;
+		case COMMAND:
+			recordedCommands++;
+			return;
+		}
+		replayed++;
+	}
+
+	private void applySensor(RecordingReader reader, long stamp) {
+		switch (reader.getSensor()) {
+		case CONTACT:
+			talker.updateContact(reader.getValue(0) != 0, stamp);
+			break;
+		case RANGE:
+			talker.updateRange(reader.getValue(0), stamp);
+			break;
+		case INTENSITY:
+			talker.updateIntensity(reader.getValue(0), stamp);
+			break;
+		case COLOR:
+			talker.updateColor(reader.getValue(0), reader.getValue(1),
+					reader.getValue(2), reader.getValue(3), stamp);
+			break;
+		case GYRO:
+			talker.updateGyro(reader.getValue(0), stamp);
+			break;
+		case IMU:
+			talker.updateImu(reader.getValue(0), reader.getValue(1), stamp);
+			break;
+		case ACCELEROMETER:
+			talker.updateAcceleration(reader.getValue(0), reader.getValue(1),
+					reader.getValue(2), stamp);
+			break;
+		}
+	}
+
+	/**
+	 * @return Anzahl der bisher eingespielten Sensor- und Motornachrichten
+	 */
+	public long getReplayedCount() {
+		return replayed;
+	}
+
+	/**
+	 * @return Anzahl der aufgezeichneten Motorkommandos, die übersprungen
+	 *         wurden
+	 */
+	public long getRecordedCommandCount() {
+		return recordedCommands;
+	}
+}
@@ -0,0 +1,433 @@
+package org.ros.nxt_ros_java;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Zeichnet alle Sensornachrichten, die ein {@link Talker} empfängt, und alle
+ * Motorkommandos, die er veröffentlicht, in binäre Dateien auf, damit sich ein
+ * fehlerhafter Lauf später nachvollziehen lässt.
+ *
+ * Jeder Eintrag ist {@link #RECORD_SIZE} Byte lang und wird in eine per
+ * {@link FileChannel#map} eingeblendete Datei geschrieben, sodass das
+ * Aufzeichnen in den Callbacks nur wenige Speicherzugriffe kostet; das
+ * Schreiben auf die Platte übernimmt das Betriebssystem. Ist eine Datei
+ * (Segment) voll, wird in der nächsten weitergeschrieben. Das nächste Segment
+ * wird vorab in einem eigenen Thread angelegt, ebenso werden dort die
+ * ältesten Segmente gelöscht, wenn mehr als die erlaubte Anzahl vorhanden
+ * ist.
+ *
+ * Aufbau eines Segments: ein Kopf von {@link #HEADER_SIZE} Byte mit Kennung,
+ * Version, Eintragsgröße, Kapazität, Segmentnummer, Startzeit und Anzahl der
+ * geschriebenen Einträge, danach die Einträge. Ein Eintrag enthält Art,
+ * Sensor bzw. Motor, Empfangszeit in {@link System#nanoTime()}, den
+ * Zeitstempel aus dem Header der Nachricht und bis zu vier Werte:
+ *
+ * <ul>
+ * <li>Sensor: der Wert wie bei den update-Methoden des Talkers, z.B.
+ * Intensität, r, g, b beim Farbsensor oder Ausrichtung und Drehrate bei der
+ * IMU</li>
+ * <li>joint_state: Position, Geschwindigkeit und Kraft eines Motors</li>
+ * <li>Kommando: die veröffentlichte Kraft eines Motors</li>
+ * </ul>
+ *
+ * Alle Zahlen werden in Big-Endian-Reihenfolge gespeichert.
+ */
+public final class MessageRecorder implements Closeable {
+
+	static final int MAGIC = 0x4E585452; // "NXTR"
+	static final int VERSION = 1;
+
+	public static final int HEADER_SIZE = 64;
+	public static final int RECORD_SIZE = 56;
+
+	/**
+	 * Voreingestellte Anzahl der Einträge je Segment, etwa 3,5 MB.
+	 */
+	public static final int DEFAULT_RECORDS_PER_SEGMENT = 65536;
+
+	/**
+	 * Voreingestellte Anzahl der Segmente, die behalten werden.
+	 */
+	public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+	static final String SUFFIX = ".nxtrec";
+
+	// Arten von Einträgen
+	static final byte KIND_SENSOR = 1;
+	static final byte KIND_JOINT_STATE = 2;
+	static final byte KIND_COMMAND = 3;
+
+	// Lage der Felder im Kopf
+	static final int HEADER_MAGIC = 0;
+	static final int HEADER_VERSION = 4;
+	static final int HEADER_RECORD_SIZE = 8;
+	static final int HEADER_CAPACITY = 12;
+	static final int HEADER_INDEX = 16;
+	static final int HEADER_START_WALL_MILLIS = 24;
+	static final int HEADER_START_NANOS = 32;
+	static final int HEADER_COUNT = 40;
+
+	// Lage der Felder in einem Eintrag
+	static final int RECORD_KIND = 0;
+	static final int RECORD_ID = 1;
+	static final int RECORD_RECEIVED_NANOS = 8;
+	static final int RECORD_HEADER_STAMP_NANOS = 16;
+	static final int RECORD_VALUES = 24;
+	static final int RECORD_VALUE_COUNT = 4;
+
+	private final File directory;
+	private final String prefix;
+	private final int recordsPerSegment;
+	private final int maxSegments;
+
+	// Legt Segmente vorab an und löscht alte
+	private final ExecutorService fileThread = Executors
+			.newSingleThreadExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "nxt-recorder");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	// Die folgenden Felder werden nur unter der Sperre des Recorders benutzt
+	private Segment current;
+	private Future<Segment> next;
+	private boolean closed = false;
+
+	private volatile long records = 0;
+	private volatile long dropped = 0;
+
+	/**
+	 * Zeichnet mit {@link #DEFAULT_RECORDS_PER_SEGMENT} Einträgen je Segment
+	 * auf und behält die letzten {@link #DEFAULT_MAX_SEGMENTS} Segmente.
+	 */
+	public MessageRecorder(File directory, String prefix) throws IOException {
+		this(directory, prefix, DEFAULT_RECORDS_PER_SEGMENT,
+				DEFAULT_MAX_SEGMENTS);
+	}
+
+	/**
+	 * @param directory
+	 *            das Verzeichnis der Segmente; wird bei Bedarf angelegt
+	 * @param prefix
+	 *            Anfang der Dateinamen, z.B. "robot1"; die Segmente heißen
+	 *            dann "robot1-00000.nxtrec" usw. Vorhandene Segmente werden
+	 *            nicht überschrieben, die Nummerierung wird fortgesetzt.
+	 * @param recordsPerSegment
+	 *            Anzahl der Einträge je Segment
+	 * @param maxSegments
+	 *            Anzahl der Segmente, die höchstens behalten werden, oder 0,
+	 *            um nie zu löschen
+	 * @throws IOException
+	 *             wenn das erste Segment nicht angelegt werden kann
+	 */
+	public MessageRecorder(File directory, String prefix,
+			int recordsPerSegment, int maxSegments) throws IOException {
+		if (recordsPerSegment <= 0) {
+			throw new IllegalArgumentException("Ungültige Segmentgröße: "
+					+ recordsPerSegment);
+		}
+		if (maxSegments < 0) {
+			throw new IllegalArgumentException("Ungültige Segmentanzahl: "
+					+ maxSegments);
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Verzeichnis kann nicht angelegt werden: "
+					+ directory);
+		}
+		this.directory = directory;
+		this.prefix = prefix;
+		this.recordsPerSegment = recordsPerSegment;
+		this.maxSegments = maxSegments;
+
+		File[] existing = listSegments(directory, prefix);
+		int index = existing.length == 0 ? 0
+				: segmentIndex(existing[existing.length - 1], prefix) + 1;
+		this.current = Segment.create(segmentFile(index), index,
+				recordsPerSegment);
+		prepareNext();
+	}
+
+	/**
+	 * Zeichnet eine Sensornachricht auf. Nicht benutzte Werte sind 0.
+	 */
+	public void recordSensor(Sensor sensor, long receivedNanos,
+			long headerStampNanos, double v0, double v1, double v2, double v3) {
+		append(KIND_SENSOR, sensor.ordinal(), receivedNanos, headerStampNanos,
+				v0, v1, v2, v3);
+	}
+
+	/**
+	 * Zeichnet den Zustand eines Motors aus einer joint_state-Nachricht auf.
+	 */
+	public void recordJointState(MotorPort port, long receivedNanos,
+			long headerStampNanos, double position, double velocity,
+			double effort) {
+		append(KIND_JOINT_STATE, port.ordinal(), receivedNanos,
+				headerStampNanos, position, velocity, effort, 0);
+	}
+
+	/**
+	 * Zeichnet ein veröffentlichtes Motorkommando auf.
+	 */
+	public void recordCommand(MotorPort port, long nanos, double effort) {
+		append(KIND_COMMAND, port.ordinal(), nanos, 0, effort, 0, 0, 0);
+	}
+
+	private synchronized void append(byte kind, int id, long receivedNanos,
+			long headerStampNanos, double v0, double v1, double v2, double v3) {
+		if (closed || current == null) {
+			dropped++;
+			return;
+		}
+		if (current.count == recordsPerSegment && !rollOver()) {
+			dropped++;
+			return;
+		}
+		MappedByteBuffer buffer = current.buffer;
+		int offset = HEADER_SIZE + current.count * RECORD_SIZE;
+		buffer.put(offset + RECORD_KIND, kind);
+		buffer.put(offset + RECORD_ID, (byte) id);
+		buffer.putLong(offset + RECORD_RECEIVED_NANOS, receivedNanos);
+		buffer.putLong(offset + RECORD_HEADER_STAMP_NANOS, headerStampNanos);
+		buffer.putDouble(offset + RECORD_VALUES, v0);
+		buffer.putDouble(offset + RECORD_VALUES + 8, v1);
+		buffer.putDouble(offset + RECORD_VALUES + 16, v2);
+		buffer.putDouble(offset + RECORD_VALUES + 24, v3);
+		current.count++;
+		// Zuletzt, damit ein Leser nach einem Absturz nur vollständige
+		// Einträge sieht
+		buffer.putLong(HEADER_COUNT, current.count);
+		records++;
+	}
+
+	/**
+	 * Wechselt in das vorab angelegte Segment. Wird der Callback-Thread beim
+	 * Warten darauf unterbrochen, bleibt das volle Segment aktuell und der
+	 * nächste Eintrag versucht es erneut; verloren geht nur dieser Eintrag.
+	 * Kann das Segment nicht angelegt werden, wird die Aufzeichnung beendet,
+	 * statt die Callbacks mit Ausnahmen zu stören.
+	 */
+	private boolean rollOver() {
+		Segment following;
+		try {
+			following = next.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} catch (ExecutionException e) {
+			System.err.println("Aufzeichnung beendet: " + e.getCause());
+			closeInBackground(current);
+			current = null;
+			return false;
+		}
+		closeInBackground(current);
+		current = following;
+		prepareNext();
+		return true;
+	}
+
+	/**
+	 * force() wartet auf die Platte, daher wird nicht im Callback
+	 * geschlossen.
+	 */
+	private void closeInBackground(final Segment full) {
+		fileThread.execute(new Runnable() {
+			@Override
+			public void run() {
+				full.close();
+			}
+		});
+	}
+
+	private void prepareNext() {
+		final int index = current.index + 1;
+		next = fileThread.submit(new Callable<Segment>() {
+			@Override
+			public Segment call() throws IOException {
+				deleteOldSegments(index);
+				return Segment.create(segmentFile(index), index,
+						recordsPerSegment);
+			}
+		});
+	}
+
+	/**
+	 * Löscht die Segmente, die über die erlaubte Anzahl hinausgehen, bevor das
+	 * Segment mit der gegebenen Nummer angelegt wird. Das vorab angelegte,
+	 * noch leere Segment zählt nicht mit.
+	 */
+	private void deleteOldSegments(int newIndex) {
+		if (maxSegments == 0) {
+			return;
+		}
+		for (File file : listSegments(directory, prefix)) {
+			if (segmentIndex(file, prefix) < newIndex - maxSegments) {
+				file.delete();
+			}
+		}
+	}
+
+	private File segmentFile(int index) {
+		return new File(directory, String.format("%s-%05d%s", prefix, index,
+				SUFFIX));
+	}
+
+	/**
+	 * Liefert die Segmente mit dem gegebenen Präfix in der Reihenfolge, in der
+	 * sie geschrieben wurden.
+	 */
+	public static File[] listSegments(File directory, final String prefix) {
+		File[] files = directory.listFiles(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.startsWith(prefix + "-") && name.endsWith(SUFFIX)
+						&& segmentIndex(name, prefix) >= 0;
+			}
+		});
+		if (files == null) {
+			return new File[0];
+		}
+		// Die Nummern haben feste Breite, die Namen sortieren also richtig
+		Arrays.sort(files);
+		return files;
+	}
+
+	private static int segmentIndex(File file, String prefix) {
+		return segmentIndex(file.getName(), prefix);
+	}
+
+	private static int segmentIndex(String name, String prefix) {
+		String number = name.substring(prefix.length() + 1, name.length()
+				- SUFFIX.length());
+		try {
+			return Integer.parseInt(number);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * @return Anzahl der aufgezeichneten Einträge
+	 */
+	public long getRecordCount() {
+		return records;
+	}
+
+	/**
+	 * @return Anzahl der Einträge, die nicht aufgezeichnet werden konnten,
+	 *         weil der Recorder geschlossen ist oder kein Segment angelegt
+	 *         werden konnte
+	 */
+	public long getDroppedCount() {
+		return dropped;
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * Schreibt das aktuelle Segment auf die Platte, beendet die Aufzeichnung
+	 * und entfernt leere Segmente.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (current != null) {
+			current.close();
+			if (current.count == 0) {
+				current.file.delete();
+			}
+			current = null;
+		}
+		try {
+			Segment unused = next.get();
+			unused.close();
+			unused.file.delete();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// Wurde nie angelegt
+		}
+		fileThread.shutdown();
+	}
+
+	/**
+	 * Eine eingeblendete Segmentdatei.
+	 */
+	private static final class Segment {
+		final File file;
+		final int index;
+		final RandomAccessFile raf;
+		final MappedByteBuffer buffer;
+		int count = 0;
+
+		private Segment(File file, int index, RandomAccessFile raf,
+				MappedByteBuffer buffer) {
+			this.file = file;
+			this.index = index;
+			this.raf = raf;
+			this.buffer = buffer;
+		}
+
+		static Segment create(File file, int index, int capacity)
+				throws IOException {
+			long length = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			try {
+				raf.setLength(length);
+				MappedByteBuffer buffer = raf.getChannel().map(
+						FileChannel.MapMode.READ_WRITE, 0, length);
+				buffer.putInt(HEADER_MAGIC, MAGIC);
+				buffer.putInt(HEADER_VERSION, VERSION);
+				buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+				buffer.putInt(HEADER_CAPACITY, capacity);
+				buffer.putInt(HEADER_INDEX, index);
+				buffer.putLong(HEADER_START_WALL_MILLIS,
+						System.currentTimeMillis());
+				buffer.putLong(HEADER_START_NANOS, System.nanoTime());
+				buffer.putLong(HEADER_COUNT, 0);
+				return new Segment(file, index, raf, buffer);
+			} catch (IOException e) {
+				raf.close();
+				throw e;
+			}
+		}
+
+		/**
+		 * Schreibt die Einträge auf die Platte und schließt die Datei. Die
+		 * Einblendung selbst gibt erst der Garbage Collector frei.
+		 */
+		void close() {
+			buffer.force();
+			try {
+				raf.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+}
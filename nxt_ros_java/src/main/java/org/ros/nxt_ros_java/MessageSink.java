@@ -0,0 +1,13 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Ziel, an das der {@link Talker} seine Motorkommandos veröffentlicht. Im
+ * Betrieb ist das ein rosjava-Publisher (siehe {@link PublisherSink}), in den
+ * Benchmarks ein Platzhalter ohne ROS-Master.
+ */
+interface MessageSink<T> {
+
+	T newMessage();
+
+	void publish(T message);
+}
@@ -0,0 +1,142 @@
+package org.ros.nxt_ros_java;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Eine zeitgesteuerte Motorbewegung, die vom {@link Talker} asynchron
+ * ausgeführt wird. Der Motor läuft sofort los, das Stoppen übernimmt ein
+ * gemeinsamer Scheduler, sodass der aufrufende Thread nicht blockiert.
+ * 
+ * Kommt für einen der Motoren ein neueres Kommando, wird der geplante Stopp für
+ * diesen Motor verworfen. Das Ergebnis der Bewegung ist true, wenn mindestens
+ * ein Motor von dieser Bewegung gestoppt wurde, und false, wenn alle Motoren
+ * von neueren Kommandos übernommen wurden.
+ * 
+ * Bewegungen auf einen Zielwinkel (siehe
+ * {@link Talker#rotateMotorAsync(MotorPort, double, double, int)}) enden,
+ * sobald das Ziel erreicht ist; die Dauer dient dann nur als Zeitlimit. Ihr
+ * Ergebnis ist nur dann true, wenn das Ziel erreicht wurde.
+ */
+public final class MotorMotion implements Future<Boolean> {
+
+	/**
+	 * Bereits abgeschlossene Bewegung, die für Kommandos ohne Dauer geliefert
+	 * wird, damit dafür kein Objekt erzeugt werden muss.
+	 */
+	static final MotorMotion UNTIMED = new MotorMotion(null, 0);
+	static {
+		UNTIMED.complete(false);
+	}
+
+	private final Talker talker;
+	private final int portMask;
+	private final PositionController controller;
+	private final CountDownLatch done = new CountDownLatch(1);
+
+	private volatile boolean stopped = false;
+	private volatile boolean cancelled = false;
+	private volatile ScheduledFuture<?> scheduledStop;
+
+	MotorMotion(Talker talker, int portMask) {
+		this(talker, portMask, null);
+	}
+
+	MotorMotion(Talker talker, int portMask, PositionController controller) {
+		this.talker = talker;
+		this.portMask = portMask;
+		this.controller = controller;
+	}
+
+	/**
+	 * @return die Ports dieser Bewegung als Maske, siehe MotorPort.mask()
+	 */
+	int getPortMask() {
+		return portMask;
+	}
+
+	/**
+	 * @return die Lageregelung dieser Bewegung oder null, wenn sie
+	 *         zeitgesteuert ist
+	 */
+	PositionController getController() {
+		return controller;
+	}
+
+	void setScheduledStop(ScheduledFuture<?> scheduledStop) {
+		this.scheduledStop = scheduledStop;
+	}
+
+	void cancelScheduledStop() {
+		if (scheduledStop != null) {
+			scheduledStop.cancel(false);
+		}
+	}
+
+	/**
+	 * Schließt die Bewegung ab.
+	 * 
+	 * @param anyStopped
+	 *            ob mindestens ein Motor von dieser Bewegung gestoppt wurde
+	 */
+	synchronized void complete(boolean anyStopped) {
+		if (isDone()) {
+			return;
+		}
+		this.stopped = anyStopped
+				&& (controller == null || controller.isReached());
+		done.countDown();
+	}
+
+	/**
+	 * Stoppt die Motoren sofort, statt auf das Ende der Dauer zu warten.
+	 * Motoren, die bereits ein neueres Kommando erhalten haben, bleiben
+	 * unberührt.
+	 * 
+	 * @return false, wenn die Bewegung bereits abgeschlossen war
+	 */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		if (isDone()) {
+			return false;
+		}
+		cancelScheduledStop();
+		cancelled = talker.finishMotion(this);
+		return cancelled;
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public boolean isDone() {
+		return done.getCount() == 0;
+	}
+
+	/**
+	 * Wartet, bis die Bewegung abgeschlossen ist.
+	 * 
+	 * @return true, wenn diese Bewegung die Motoren gestoppt hat, false, wenn
+	 *         sie von neueren Kommandos übernommen wurde oder ihr Ziel nicht
+	 *         erreicht hat
+	 */
+	@Override
+	public Boolean get() throws InterruptedException {
+		done.await();
+		return stopped;
+	}
+
+	@Override
+	public Boolean get(long timeout, TimeUnit unit)
+			throws InterruptedException, TimeoutException {
+		if (!done.await(timeout, unit)) {
+			throw new TimeoutException();
+		}
+		return stopped;
+	}
+}
@@ -0,0 +1,75 @@
+package org.ros.nxt_ros_java;
+
+import java.util.Arrays;
+
+/**
+ * Die Motorports des NXT. Der Gelenkname, unter dem der Treiber den Motor
+ * führt, wird einmalig erzeugt, sodass beim Veröffentlichen von Kommandos keine
+ * Zeichenketten zusammengesetzt werden müssen.
+ */
+public enum MotorPort {
+	A("a"), B("b"), C("c");
+
+	private final String motorID;
+	private final String jointName;
+
+	private MotorPort(String motorID) {
+		this.motorID = motorID;
+		this.jointName = (motorID + "_motor_joint").intern();
+	}
+
+	/**
+	 * @return die Kennung des Motors, also "a", "b" oder "c"
+	 */
+	public String getMotorID() {
+		return motorID;
+	}
+
+	/**
+	 * @return der Name des Gelenks, z.B. "a_motor_joint"
+	 */
+	public String getJointName() {
+		return jointName;
+	}
+
+	/**
+	 * @return das Bit dieses Ports in einer Portmaske
+	 */
+	int mask() {
+		return 1 << ordinal();
+	}
+
+	/**
+	 * Liefert den Port zu einem Gelenknamen des Treibers, z.B. aus einer
+	 * joint_state-Nachricht.
+	 * 
+	 * @return der Port oder null, wenn der Name zu keinem Motor gehört
+	 */
+	static MotorPort fromJointName(String jointName) {
+		for (MotorPort port : values()) {
+			if (port.jointName.equals(jointName)) {
+				return port;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Liefert den Port zu einer Motorkennung.
+	 * 
+	 * @param motorID
+	 *            Entweder "a", "b" oder "c"
+	 * @throws IllegalArgumentException
+	 *             wenn es keinen Motor mit dieser Kennung gibt
+	 */
+	public static MotorPort fromMotorID(String motorID) {
+		for (MotorPort port : values()) {
+			if (port.motorID.equals(motorID)) {
+				return port;
+			}
+		}
+		throw new IllegalArgumentException(motorID
+				+ " ist kein gültiger Motor. Mögliche Motoren: "
+				+ Arrays.toString(values()));
+	}
+}
@@ -32,16 +32,19 @@ public class MyMain {
 		System.out.println("Waiting ....");
 		t.waitForNode();
 		System.out.println("Waiting done");
+		DifferentialDrive drive = new DifferentialDrive(t);
+		drive.start();
 		for (int i = 0; i<10; i++){
-			while (t.getRange()>0.5){
-				System.out.println("Abstand zu groß: " + t.getRange());
-				t.runTwoMotors("b", "c", 0, 1);
-			}
+			System.out.println("Abstand zu groß: " + t.getRange());
+			drive.setVelocity(0.2, 0);
+			t.awaitRangeBelow(0.5, 0);
 			System.out.println("Abstand zu klein: " + t.getRange());
-			t.runMotor("c", 50, -1);
-			t.runMotor("b", 300, -1);
-			Thread.sleep(100);
+			// rückwärts aus dem Hindernis herausdrehen, bis der Gyrosensor
+			// eine Vierteldrehung meldet
+			drive.setVelocity(-0.1, Math.toRadians(90));
+			t.awaitRotation(Math.toRadians(90), 1500);
 		}
+		drive.stop();
 		t.allMotorStop();
   }
 }
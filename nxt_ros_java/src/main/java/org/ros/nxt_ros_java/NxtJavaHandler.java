@@ -1,10 +1,12 @@
 package org.ros.nxt_ros_java;
 
+import java.io.File;
+import java.io.IOException;
+
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 
 import org.ros.internal.loader.CommandLineLoader;
-import org.ros.node.DefaultNodeMainExecutor;
 import org.ros.node.NodeConfiguration;
 import org.ros.node.NodeMain;
 import org.ros.node.NodeMainExecutor;
@@ -20,38 +22,107 @@ import org.ros.nxt_ros_java.Talker;
  */
 public class NxtJavaHandler {
 	
-	public enum Farbe{SCHWARZ,WEISS,ROT,GRUEN,BLAU,GELB,UNGUELTIG};	
+	/**
+	 * Standardfarben, die vom NXT-Farbsensor erkannt werden, mit den
+	 * RGB-Anteilen, die der Treiber für sie veröffentlicht.
+	 */
+	public enum Farbe{
+		SCHWARZ(0,0,0),WEISS(1,1,1),ROT(1,0,0),GRUEN(0,1,0),BLAU(0,0,1),GELB(1,1,0),UNGUELTIG;
+		
+		private final double rotAnteil;
+		private final double gruenAnteil;
+		private final double blauAnteil;
+		
+		private Farbe(){
+			this(Double.NaN, Double.NaN, Double.NaN);
+		}
+		
+		private Farbe(double rotAnteil, double gruenAnteil, double blauAnteil){
+			this.rotAnteil = rotAnteil;
+			this.gruenAnteil = gruenAnteil;
+			this.blauAnteil = blauAnteil;
+		}
+		
+		public double getRotAnteil() {
+			return rotAnteil;
+		}
+		
+		public double getGruenAnteil() {
+			return gruenAnteil;
+		}
+		
+		public double getBlauAnteil() {
+			return blauAnteil;
+		}
+	};	
 
+	/**
+	 * Anfang der Dateinamen bei {@link #starteAufzeichnung(String)}; mit
+	 * diesem Präfix wird eine Aufzeichnung per {@link LogReplay} eingespielt.
+	 */
+	public static final String AUFZEICHNUNG_PRAEFIX = "nxt";
+	
 	private final String ERROR_INTERRUPT_EXCEPTION= "Fehler aufgetreten. Die Methode wurde unterbrochen";
 	private Talker talkerInstance;
+	private DifferentialDrive antrieb;
+	private ReflexRule hindernisStopp;
 
 	public Talker getTalkerInstance() {
 		return this.talkerInstance;
 	}
 	
 	public Farbe leseFarbe(){
-		double r=this.talkerInstance.getColorR();
-		double g=this.talkerInstance.getColorG();
-		double b=this.talkerInstance.getColorB();
-		if(r==0.0 && g == 0.0 && b == 0.0)
-			return Farbe.SCHWARZ;
-		
-		if(r==0.0 && g == 0.0 && b == 1.0)
-			return Farbe.BLAU;
-		
-		if(r==0.0 && g == 1.0 && b == 0.0)
-			return Farbe.GRUEN;
-		
-		if(r==1.0 && g == 1.0 && b == 0.0)
-			return Farbe.GELB;
-		
-		if(r==1.0 && g == 0.0 && b == 1.0)
-			return Farbe.ROT;
-		
-		if(r==1.0 && g == 1.0 && b == 1.0)
-			return Farbe.WEISS;
-		
-		return Farbe.UNGUELTIG;
+		return this.talkerInstance.getColor();
+	}
+	
+	/**
+	 * Liefert die erkannte Farbe, sofern der Messwert nicht älter ist als
+	 * angegeben.
+	 * 
+	 * @param maxAlterMillis
+	 *            das erlaubte Alter des Messwerts in ms
+	 * @throws StaleSensorDataException
+	 *             wenn der Messwert älter ist
+	 */
+	public Farbe leseFarbe(long maxAlterMillis){
+		SensorSnapshot snapshot = this.talkerInstance.snapshot().checkFresh(
+				Sensor.COLOR, maxAlterMillis);
+		return snapshot.getColor();
+	}
+	
+	/**
+	 * Lernt, wie die gegebene Farbe am Sensor aussieht. Dazu muss die Farbe
+	 * vor den Sensor gehalten werden, bis die Methode zurückkehrt.
+	 * 
+	 * @param farbe
+	 *            die Farbe, die vor dem Sensor liegt
+	 * @param anzahlMessungen
+	 *            aus wie vielen Messungen gemittelt wird
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange auf jede Messung gewartet. Sonst
+	 *            höchstens soviele Millisekunden je Messung.
+	 * @return true, wenn die Farbe gelernt wurde, sonst false
+	 */
+	public boolean lerneFarbe(Farbe farbe, int anzahlMessungen, long timeoutMillis){
+		try {
+			return this.talkerInstance.calibrateColor(farbe, anzahlMessungen,
+					timeoutMillis);
+		} catch (InterruptedException e) {
+			System.out.println(ERROR_INTERRUPT_EXCEPTION);
+			return false;
+		}
+	}
+	
+	/**
+	 * Legt fest, wie weit ein Messwert von der gelernten Farbe abweichen
+	 * darf, damit er noch als diese Farbe erkannt wird.
+	 * 
+	 * @param toleranz
+	 *            der größte Abstand im RGB-Raum, voreingestellt ist
+	 *            {@link ColorClassifier#DEFAULT_MAX_DISTANCE}
+	 */
+	public void setzeFarbToleranz(double toleranz){
+		this.talkerInstance.getColorClassifier().setMaxDistance(toleranz);
 	}
 	
 	/**
@@ -64,6 +135,19 @@ public class NxtJavaHandler {
 		return this.talkerInstance.getContact();
 	}
 	
+	/**
+	 * Gibt den Zustand des Kontaktsensors zurück, sofern der Messwert nicht
+	 * älter ist als angegeben.
+	 * 
+	 * @param maxAlterMillis
+	 *            das erlaubte Alter des Messwerts in ms
+	 * @throws StaleSensorDataException
+	 *             wenn der Messwert älter ist
+	 */
+	public boolean leseTaster(long maxAlterMillis){
+		return this.talkerInstance.getContact(maxAlterMillis);
+	}
+	
 	/**
 	 * Liefert die Distanz des Ultraschallsensors bis zum nächsten Hindernis.
 	 * 
@@ -73,6 +157,236 @@ public class NxtJavaHandler {
 		return this.talkerInstance.getRange();
 	}
 	
+	/**
+	 * Liefert die Distanz des Ultraschallsensors, sofern der Messwert nicht
+	 * älter ist als angegeben. So wird nicht mit veralteten Werten gefahren,
+	 * wenn der Sensor keine Nachrichten mehr schickt.
+	 * 
+	 * @param maxAlterMillis
+	 *            das erlaubte Alter des Messwerts in ms
+	 * @return Die Distanz in m.
+	 * @throws StaleSensorDataException
+	 *             wenn der Messwert älter ist
+	 */
+	public double leseDistanz(long maxAlterMillis){
+		return this.talkerInstance.getRange(maxAlterMillis);
+	}
+	
+	/**
+	 * Liefert den Median der letzten Messungen des Ultraschallsensors.
+	 * Einzelne Fehlmessungen werden so herausgefiltert.
+	 * 
+	 * @param anzahl
+	 *            Anzahl der Messungen, z.B. 5
+	 * @return Die Distanz in m oder NaN, wenn noch keine Messung vorliegt.
+	 */
+	public double leseDistanzGeglaettet(int anzahl){
+		return this.talkerInstance.getHistory(Sensor.RANGE).getMedian(anzahl);
+	}
+	
+	/**
+	 * Liefert das Alter des letzten Messwerts eines Sensors.
+	 * 
+	 * @return Alter in ms oder Long.MAX_VALUE, wenn noch kein Messwert
+	 *         eingetroffen ist
+	 */
+	public long leseSensorAlter(Sensor sensor){
+		return this.talkerInstance.getStamp(sensor).getAgeMillis();
+	}
+
+	/**
+	 * Liefert die Drehrate des Gyrosensors um die Hochachse.
+	 * 
+	 * @return Die Drehrate in Grad pro Sekunde, positiv bei einer
+	 *         Linksdrehung.
+	 */
+	public double leseDrehrate(){
+		return Math.toDegrees(this.talkerInstance.getAngularVelocity());
+	}
+
+	/**
+	 * Liefert die Ausrichtung des Roboters laut Gyrosensor.
+	 * 
+	 * @return Die Ausrichtung in Grad seit dem Start des Treibers.
+	 */
+	public double leseAusrichtung(){
+		return Math.toDegrees(this.talkerInstance.getHeading());
+	}
+
+	/**
+	 * @return Die Beschleunigung entlang der x-Achse in m/s².
+	 */
+	public double leseBeschleunigungX(){
+		return this.talkerInstance.getAccelerationX();
+	}
+
+	/**
+	 * @return Die Beschleunigung entlang der y-Achse in m/s².
+	 */
+	public double leseBeschleunigungY(){
+		return this.talkerInstance.getAccelerationY();
+	}
+
+	/**
+	 * @return Die Beschleunigung entlang der z-Achse in m/s².
+	 */
+	public double leseBeschleunigungZ(){
+		return this.talkerInstance.getAccelerationZ();
+	}
+
+	/**
+	 * Wartet, bis sich der Roboter laut Gyrosensor um den gegebenen Winkel
+	 * gedreht hat.
+	 * 
+	 * @param grad
+	 *            Der Winkel in Grad.
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn der Winkel erreicht wurde, sonst false
+	 */
+	public boolean warteAufDrehung(double grad, long timeoutMillis){
+		try {
+			return this.talkerInstance.awaitRotation(Math.toRadians(grad),
+					timeoutMillis);
+		} catch (InterruptedException e) {
+			System.out.println(ERROR_INTERRUPT_EXCEPTION);
+			return false;
+		}
+	}
+
+	/**
+	 * Liefert, um wie viel Grad sich ein Motor seit dem Start des Treibers
+	 * gedreht hat.
+	 *
+	 * @param motor
+	 *            Entweder "a", "b" oder "c"
+	 * @return Der Drehwinkel in Grad.
+	 */
+	public double leseMotorPosition(String motor){
+		return this.talkerInstance.getJointState(MotorPort.fromMotorID(motor))
+				.getPositionDegrees();
+	}
+
+	/**
+	 * Liefert die Drehgeschwindigkeit eines Motors.
+	 *
+	 * @param motor
+	 *            Entweder "a", "b" oder "c"
+	 * @return Die Geschwindigkeit in Grad pro Sekunde.
+	 */
+	public double leseMotorGeschwindigkeit(String motor){
+		return Math.toDegrees(this.talkerInstance.getJointVelocity(MotorPort
+				.fromMotorID(motor)));
+	}
+
+	/**
+	 * Liefert den vollständigen zuletzt gemeldeten Zustand eines Motors,
+	 * sofern er nicht älter ist als angegeben.
+	 *
+	 * @param motor
+	 *            Entweder "a", "b" oder "c"
+	 * @param maxAlterMillis
+	 *            das erlaubte Alter des Zustands in ms
+	 * @throws StaleSensorDataException
+	 *             wenn der Zustand älter ist
+	 */
+	public JointStateSample leseMotorZustand(String motor, long maxAlterMillis){
+		return this.talkerInstance.getJointState(MotorPort.fromMotorID(motor),
+				maxAlterMillis);
+	}
+
+	/**
+	 * Wartet, bis der Ultraschallsensor eine Distanz kleiner als die gegebene
+	 * meldet. Während des Wartens wird keine Rechenzeit verbraucht.
+	 * 
+	 * @param distanz
+	 *            Die Distanz in m.
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn die Distanz unterschritten wurde, sonst false
+	 */
+	public boolean warteAufDistanzUnter(double distanz, long timeoutMillis){
+		try {
+			return this.talkerInstance.awaitRangeBelow(distanz, timeoutMillis);
+		} catch (InterruptedException e) {
+			System.out.println(ERROR_INTERRUPT_EXCEPTION);
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Wartet, bis der Median der letzten Messungen des Ultraschallsensors
+	 * kleiner als die gegebene Distanz ist. Anders als bei
+	 * {@link #warteAufDistanzUnter(double, long)} löst eine einzelne
+	 * Fehlmessung nicht aus.
+	 * 
+	 * @param distanz
+	 *            Die Distanz in m.
+	 * @param anzahl
+	 *            Anzahl der Messungen, z.B. 5
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn die Distanz unterschritten wurde, sonst false
+	 */
+	public boolean warteAufDistanzUnter(double distanz, int anzahl,
+			long timeoutMillis){
+		try {
+			return this.talkerInstance.awaitRangeBelow(distanz, anzahl,
+					timeoutMillis);
+		} catch (InterruptedException e) {
+			System.out.println(ERROR_INTERRUPT_EXCEPTION);
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Wartet, bis der Taster gedrückt oder losgelassen wird.
+	 * 
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn sich der Zustand des Tasters geändert hat, sonst false
+	 */
+	public boolean warteAufTasterWechsel(long timeoutMillis){
+		try {
+			return this.talkerInstance.awaitContactChange(timeoutMillis);
+		} catch (InterruptedException e) {
+			System.out.println(ERROR_INTERRUPT_EXCEPTION);
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Wartet, bis der Farbsensor die gegebene Farbe erkennt.
+	 * 
+	 * @param farbe
+	 *            die Farbe, auf die gewartet wird
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn die Farbe erkannt wurde, sonst false
+	 */
+	public boolean warteAufFarbe(final Farbe farbe, long timeoutMillis){
+		try {
+			return this.talkerInstance.awaitCondition(new SensorCondition() {
+				@Override
+				public boolean isSatisfied(Talker talker) {
+					return talker.getColor() == farbe;
+				}
+			}, timeoutMillis);
+		} catch (InterruptedException e) {
+			System.out.println(ERROR_INTERRUPT_EXCEPTION);
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
 	
 	
 	/*
@@ -93,7 +407,7 @@ public class NxtJavaHandler {
 	 */
 	public void bewegeMotorA(int duration, double effort){
 		try {
-			this.talkerInstance.runMotor("a",duration,effort);
+			this.talkerInstance.runMotor(MotorPort.A,duration,effort);
 		} catch (InterruptedException e) {
 			System.out.println(ERROR_INTERRUPT_EXCEPTION);
 			e.printStackTrace();
@@ -113,7 +427,7 @@ public class NxtJavaHandler {
 	 */
 	public void bewegeMotorB(int duration, double effort){
 		try {
-			this.talkerInstance.runMotor("b",duration,effort);
+			this.talkerInstance.runMotor(MotorPort.B,duration,effort);
 		} catch (InterruptedException e) {
 			System.out.println(ERROR_INTERRUPT_EXCEPTION);
 			e.printStackTrace();
@@ -132,7 +446,7 @@ public class NxtJavaHandler {
 	 */
 	public void bewegeMotorC(int duration, double effort) {
 		try {
-			this.talkerInstance.runMotor("c",duration,effort);
+			this.talkerInstance.runMotor(MotorPort.C,duration,effort);
 		} catch (InterruptedException e) {
 			System.out.println(ERROR_INTERRUPT_EXCEPTION);
 			e.printStackTrace();
@@ -164,6 +478,205 @@ public class NxtJavaHandler {
 			}
 	}
 	
+	/**
+	 * Startet einen Motor und kehrt sofort zurück, statt bis zum Ende der
+	 * Bewegung zu blockieren. Ein neues Kommando für denselben Motor ersetzt
+	 * die laufende Bewegung.
+	 * 
+	 * @param motor
+	 *            Entweder "a", "b" oder "c"
+	 * @param duration
+	 *            Wenn 0, bewegt sich der Motor unendlich lange. Sonst soviele
+	 *            Millisekunden wie angegeben. Motor rollt danach aus.
+	 * @param effort
+	 *            Die Kraft, mit der sich der Motor bewegen soll. Negatives
+	 *            Vorzeichen dreht den Motor in die andere Richtung.
+	 * @return die Bewegung, mit der auf das Ende gewartet oder vorzeitig
+	 *         gestoppt werden kann
+	 */
+	public MotorMotion starteMotor(String motor, int duration, double effort){
+		return this.talkerInstance.runMotorAsync(motor, duration, effort);
+	}
+	
+	/**
+	 * Startet zwei Motoren gleichzeitig und kehrt sofort zurück.
+	 * 
+	 * @param motor1
+	 *            Entweder "a", "b" oder "c"
+	 * @param motor2
+	 *            Entweder "a", "b" oder "c"
+	 * @param duration
+	 *            Wenn 0, bewegen sich die Motoren unendlich lange. Sonst
+	 *            soviele Millisekunden wie angegeben. Motoren rollen danach
+	 *            aus.
+	 * @param effort
+	 *            Die Kraft, mit der sich die Motoren bewegen sollen. Negatives
+	 *            Vorzeichen dreht die Motoren in die andere Richtung.
+	 * @return die Bewegung, mit der auf das Ende gewartet oder vorzeitig
+	 *         gestoppt werden kann
+	 */
+	public MotorMotion starteZweiMotoren(String motor1, String motor2,
+			int duration, double effort){
+		return this.talkerInstance.runTwoMotorsAsync(motor1, motor2, duration,
+				effort);
+	}
+	
+	/**
+	 * Dreht einen Motor um den gegebenen Winkel. Der Motor wird anhand seiner
+	 * Rückmeldungen geregelt und hält an, sobald der Winkel erreicht ist.
+	 * 
+	 * @param motor
+	 *            Entweder "a", "b" oder "c"
+	 * @param grad
+	 *            Der Winkel in Grad. Negatives Vorzeichen dreht den Motor in
+	 *            die andere Richtung.
+	 * @param effort
+	 *            Die größte Kraft, mit der sich der Motor bewegen soll.
+	 * @param timeoutMillis
+	 *            Wenn 0, wird ohne Zeitlimit gedreht. Sonst hält der Motor
+	 *            spätestens nach soviel Millisekunden an.
+	 * @return true, wenn der Winkel erreicht wurde, sonst false
+	 */
+	public boolean dreheMotor(String motor, double grad, double effort,
+			int timeoutMillis){
+		try {
+			return this.talkerInstance.rotateMotor(motor, grad, effort,
+					timeoutMillis);
+		} catch (InterruptedException e) {
+			System.out.println(ERROR_INTERRUPT_EXCEPTION);
+			return false;
+		}
+	}
+	
+	/**
+	 * Fährt mit zwei Antriebsmotoren die gegebene Strecke geradeaus. Die
+	 * Motoren halten an, sobald die Strecke zurückgelegt ist.
+	 * 
+	 * @param motor1
+	 *            Entweder "a", "b" oder "c"
+	 * @param motor2
+	 *            Entweder "a", "b" oder "c"
+	 * @param zentimeter
+	 *            Die Strecke in cm. Negatives Vorzeichen fährt rückwärts.
+	 * @param effort
+	 *            Die größte Kraft, mit der sich die Motoren bewegen sollen.
+	 * @param timeoutMillis
+	 *            Wenn 0, wird ohne Zeitlimit gefahren. Sonst halten die
+	 *            Motoren spätestens nach soviel Millisekunden an.
+	 * @return true, wenn die Strecke zurückgelegt wurde, sonst false
+	 */
+	public boolean fahreStrecke(String motor1, String motor2,
+			double zentimeter, double effort, int timeoutMillis){
+		try {
+			return this.talkerInstance.driveDistance(motor1, motor2,
+					zentimeter / 100.0, effort, timeoutMillis);
+		} catch (InterruptedException e) {
+			System.out.println(ERROR_INTERRUPT_EXCEPTION);
+			return false;
+		}
+	}
+	
+	/**
+	 * Fährt mit den Antriebsrädern (Motor C links, Motor B rechts) mit der
+	 * gegebenen Geschwindigkeit, bis halteAn() oder stoppeMotoren() aufgerufen
+	 * wird. Beide Räder werden dabei anhand ihrer Rückmeldungen gleich schnell
+	 * gehalten, sodass der Roboter ohne Korrekturen geradeaus fährt.
+	 * 
+	 * @param meterProSekunde
+	 *            Die Geschwindigkeit geradeaus. Negatives Vorzeichen fährt
+	 *            rückwärts.
+	 * @param gradProSekunde
+	 *            Die Drehgeschwindigkeit. Positives Vorzeichen dreht nach
+	 *            links.
+	 */
+	public synchronized void fahre(double meterProSekunde, double gradProSekunde){
+		if (this.antrieb == null) {
+			this.antrieb = new DifferentialDrive(this.talkerInstance);
+			this.antrieb.start();
+		}
+		this.antrieb.setVelocity(meterProSekunde,
+				Math.toRadians(gradProSekunde));
+	}
+	
+	/**
+	 * Beendet eine mit fahre() begonnene Fahrt und hält die Räder an.
+	 */
+	public synchronized void halteAn(){
+		if (this.antrieb != null) {
+			this.antrieb.stop();
+			this.antrieb = null;
+		}
+	}
+	
+	/**
+	 * Hält die Motoren B und C sofort an, sobald der Ultraschallsensor eine
+	 * Distanz unter der gegebenen meldet oder der Taster gedrückt wird, und
+	 * hält sie auf 0, solange das gilt. Geprüft wird bei jeder Nachricht der
+	 * Sensoren, nicht erst beim nächsten Durchlauf der eigenen Schleife. Ein
+	 * vorher gesetzter Hindernis-Stopp wird ersetzt.
+	 * 
+	 * @param distanz
+	 *            Die Distanz in m.
+	 */
+	public synchronized void aktiviereHindernisStopp(double distanz){
+		deaktiviereHindernisStopp();
+		this.hindernisStopp = ReflexRule.stop(MotorPort.B, MotorPort.C)
+				.withRangeBelow(distanz).withContact();
+		this.talkerInstance.addReflex(this.hindernisStopp);
+	}
+	
+	/**
+	 * Hebt den Hindernis-Stopp auf, z.B. um vom Hindernis zurückzusetzen.
+	 */
+	public synchronized void deaktiviereHindernisStopp(){
+		if (this.hindernisStopp != null) {
+			this.talkerInstance.removeReflex(this.hindernisStopp);
+			this.hindernisStopp = null;
+		}
+	}
+	
+	/**
+	 * Zeichnet ab sofort alle Sensornachrichten und Motorkommandos in Dateien
+	 * im gegebenen Verzeichnis auf, siehe {@link MessageRecorder}. Eine
+	 * laufende Aufzeichnung wird beendet. Die Dateinamen beginnen mit
+	 * {@link #AUFZEICHNUNG_PRAEFIX}.
+	 * 
+	 * @param verzeichnis
+	 *            das Verzeichnis für die Aufzeichnung
+	 * @return true, wenn die Aufzeichnung läuft, sonst false
+	 */
+	public boolean starteAufzeichnung(String verzeichnis){
+		beendeAufzeichnung();
+		try {
+			MessageRecorder recorder = new MessageRecorder(new File(
+					verzeichnis), AUFZEICHNUNG_PRAEFIX);
+			this.talkerInstance.setRecorder(recorder);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Beendet die Aufzeichnung und schreibt sie auf die Platte.
+	 */
+	public void beendeAufzeichnung(){
+		MessageRecorder recorder = this.talkerInstance.getRecorder();
+		if (recorder != null) {
+			this.talkerInstance.setRecorder(null);
+			recorder.close();
+		}
+	}
+	
+	/**
+	 * Setzt die Kraft aller Motoren auf 0.
+	 */
+	public void stoppeMotoren(){
+		halteAn();
+		this.talkerInstance.allMotorStop();
+	}
+	
 	/**
 	 * Diese Methode wartet darauf, dass die Initialisierung der Programmumgebung abgeschlossen ist.
 	 */
@@ -171,6 +684,34 @@ public class NxtJavaHandler {
 		this.talkerInstance.waitForNode();
 	}
 	
+	/**
+	 * Erstellt einen Handler für einen bereits vorhandenen Talker, ohne eine
+	 * Verbindung aufzubauen. Wird von den Benchmarks verwendet.
+	 */
+	NxtJavaHandler(Talker talker) {
+		this.talkerInstance = talker;
+	}
+	
+	/**
+	 * Erstellt einen Handler für einen Roboter einer {@link TalkerFleet}.
+	 * Mehrere Roboter teilen sich so eine JVM und einen NodeMainExecutor.
+	 * 
+	 * @param namensraum
+	 *            der Namensraum des Roboters, z.B. "robot1"
+	 */
+	public NxtJavaHandler(TalkerFleet flotte, String namensraum) {
+		this.talkerInstance = flotte.addRobot(namensraum);
+	}
+	
+	/**
+	 * Erstellt einen Handler, der statt mit einem Roboter mit einer
+	 * eingespielten Aufzeichnung arbeitet, siehe {@link LogReplay}.
+	 * Motorkommandos werden verworfen.
+	 */
+	public NxtJavaHandler(LogReplay wiedergabe) {
+		this.talkerInstance = wiedergabe.getTalker();
+	}
+	
 	public NxtJavaHandler(String[] argv) {
 		CommandLineLoader loader = new CommandLineLoader(
 				Lists.newArrayList(argv));
@@ -181,8 +722,7 @@ public class NxtJavaHandler {
 		nodeMain = this.talkerInstance;
 		System.out.println("Loaded class as nodeMain");
 		Preconditions.checkState(nodeMain != null);
-		NodeMainExecutor nodeMainExecutor = DefaultNodeMainExecutor
-				.newDefault();
+		NodeMainExecutor nodeMainExecutor = TalkerFleet.sharedExecutor();
 		nodeMainExecutor.execute(nodeMain, nodeConfiguration);
 	}
 }
@@ -0,0 +1,99 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Ein einfacher PID-Regler mit begrenzter Stellgröße. Der I-Anteil wird nur
+ * weiter aufsummiert, solange die Stellgröße nicht an der Grenze liegt, damit
+ * er bei langen Fahrten nicht aufläuft.
+ *
+ * Nicht threadsicher; jeder Regelkreis hat seine eigene Instanz. Ein
+ * Regelschritt erzeugt keine Objekte.
+ */
+public final class PidController {
+
+	private final double kp;
+	private final double ki;
+	private final double kd;
+	private final double outputLimit;
+
+	private double integral = 0;
+	private double previousError = 0;
+	private boolean hasPrevious = false;
+
+	/**
+	 * @param kp
+	 *            Verstärkung des P-Anteils
+	 * @param ki
+	 *            Verstärkung des I-Anteils je Sekunde
+	 * @param kd
+	 *            Verstärkung des D-Anteils in Sekunden
+	 * @param outputLimit
+	 *            der größte Betrag der Stellgröße
+	 */
+	public PidController(double kp, double ki, double kd, double outputLimit) {
+		if (!(outputLimit > 0)) {
+			throw new IllegalArgumentException("Ungültige Begrenzung: "
+					+ outputLimit);
+		}
+		this.kp = kp;
+		this.ki = ki;
+		this.kd = kd;
+		this.outputLimit = outputLimit;
+	}
+
+	/**
+	 * Berechnet die Stellgröße für die aktuelle Regelabweichung.
+	 *
+	 * @param error
+	 *            Sollwert minus Istwert
+	 * @param dtSeconds
+	 *            Zeit seit dem letzten Schritt in s; beim ersten Schritt oder
+	 *            bei 0 werden I- und D-Anteil übergangen
+	 * @return die Stellgröße, begrenzt auf [-outputLimit, outputLimit]
+	 */
+	public double update(double error, double dtSeconds) {
+		double derivative = 0;
+		double nextIntegral = integral;
+		if (hasPrevious && dtSeconds > 0) {
+			derivative = (error - previousError) / dtSeconds;
+			nextIntegral += error * dtSeconds;
+		}
+		previousError = error;
+		hasPrevious = true;
+
+		double output = kp * error + ki * nextIntegral + kd * derivative;
+		if (output > outputLimit) {
+			return outputLimit;
+		}
+		if (output < -outputLimit) {
+			return -outputLimit;
+		}
+		integral = nextIntegral;
+		return output;
+	}
+
+	/**
+	 * Vergisst I-Anteil und letzte Abweichung, z.B. nach einem neuen
+	 * Sollwert.
+	 */
+	public void reset() {
+		integral = 0;
+		previousError = 0;
+		hasPrevious = false;
+	}
+
+	public double getKp() {
+		return kp;
+	}
+
+	public double getKi() {
+		return ki;
+	}
+
+	public double getKd() {
+		return kd;
+	}
+
+	public double getOutputLimit() {
+		return outputLimit;
+	}
+}
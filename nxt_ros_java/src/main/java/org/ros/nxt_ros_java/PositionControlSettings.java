@@ -0,0 +1,77 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Unveränderliche Einstellungen der Lageregelung, mit der der {@link Talker}
+ * Motoren um einen Winkel dreht.
+ */
+public final class PositionControlSettings {
+
+	/**
+	 * Einstellungen, die für die NXT-Motoren ohne Last gut funktionieren.
+	 */
+	public static final PositionControlSettings DEFAULT = new PositionControlSettings(
+			2.0, 0.5, 0.05, 0.3, 2.0);
+
+	private final double kp;
+	private final double ki;
+	private final double kd;
+	private final double minEffort;
+	private final double toleranceRadians;
+
+	/**
+	 * @param kp
+	 *            Kraft je rad Abweichung
+	 * @param ki
+	 *            Kraft je rad·s aufsummierter Abweichung
+	 * @param kd
+	 *            Kraft je rad/s Änderung der Abweichung
+	 * @param minEffort
+	 *            die kleinste Kraft, mit der sich der Motor unter Last noch
+	 *            dreht; kleinere Stellgrößen werden darauf angehoben
+	 * @param toleranceDegrees
+	 *            ab welcher Abweichung in Grad das Ziel als erreicht gilt
+	 */
+	public PositionControlSettings(double kp, double ki, double kd,
+			double minEffort, double toleranceDegrees) {
+		if (minEffort < 0 || !(toleranceDegrees > 0)) {
+			throw new IllegalArgumentException(
+					"Ungültige Einstellungen der Lageregelung");
+		}
+		this.kp = kp;
+		this.ki = ki;
+		this.kd = kd;
+		this.minEffort = minEffort;
+		this.toleranceRadians = Math.toRadians(toleranceDegrees);
+	}
+
+	public double getKp() {
+		return kp;
+	}
+
+	public double getKi() {
+		return ki;
+	}
+
+	public double getKd() {
+		return kd;
+	}
+
+	public double getMinEffort() {
+		return minEffort;
+	}
+
+	public double getToleranceDegrees() {
+		return Math.toDegrees(toleranceRadians);
+	}
+
+	double getToleranceRadians() {
+		return toleranceRadians;
+	}
+
+	@Override
+	public String toString() {
+		return "PositionControlSettings[kp=" + kp + ", ki=" + ki + ", kd=" + kd
+				+ ", minEffort=" + minEffort + ", tolerance="
+				+ getToleranceDegrees() + "°]";
+	}
+}
@@ -0,0 +1,96 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Regelt die Motoren einer {@link MotorMotion} auf einen Zielwinkel. Der
+ * {@link Talker} ruft {@link #step} bei jeder joint_state-Nachricht unter
+ * seinem commandLock auf, geregelt wird also im Takt der Rückmeldungen.
+ */
+final class PositionController {
+
+	private static final int PORTS = MotorPort.values().length;
+
+	private final int portMask;
+	private final double[] targets = new double[PORTS];
+	private final PidController[] pids = new PidController[PORTS];
+	private final long[] lastSequence = new long[PORTS];
+	private final long[] lastNanos = new long[PORTS];
+	private final double minEffort;
+	private final double tolerance;
+
+	// Ports, deren letzte Position innerhalb der Toleranz lag
+	private int withinMask = 0;
+	private volatile boolean reached = false;
+
+	/**
+	 * @param targets
+	 *            Zielwinkel in rad je Port (Index MotorPort.ordinal())
+	 */
+	PositionController(int portMask, double[] targets, double maxEffort,
+			PositionControlSettings settings) {
+		this.portMask = portMask;
+		this.minEffort = Math.min(settings.getMinEffort(), maxEffort);
+		this.tolerance = settings.getToleranceRadians();
+		for (int i = 0; i < PORTS; i++) {
+			if ((portMask & (1 << i)) != 0) {
+				this.targets[i] = targets[i];
+				this.pids[i] = new PidController(settings.getKp(),
+						settings.getKi(), settings.getKd(), maxEffort);
+			}
+			this.lastSequence[i] = -1;
+		}
+	}
+
+	/**
+	 * Berechnet die neue Kraft eines Ports, sofern seit dem letzten Schritt
+	 * eine neue Rückmeldung eingetroffen ist.
+	 *
+	 * @param efforts
+	 *            nimmt die Kraft an der Stelle port.ordinal() auf
+	 * @return true, wenn eine neue Kraft berechnet wurde
+	 */
+	boolean step(MotorPort port, JointStateSample sample, double[] efforts) {
+		int i = port.ordinal();
+		SensorStamp stamp = sample.getStamp();
+		if ((portMask & port.mask()) == 0
+				|| stamp.getSequence() == lastSequence[i]) {
+			return false;
+		}
+		double dt = lastNanos[i] == 0 ? 0
+				: (stamp.getReceivedNanos() - lastNanos[i]) / 1e9;
+		lastSequence[i] = stamp.getSequence();
+		lastNanos[i] = stamp.getReceivedNanos();
+
+		double error = targets[i] - sample.getPosition();
+		if (Math.abs(error) <= tolerance) {
+			withinMask |= port.mask();
+			pids[i].reset();
+			efforts[i] = 0;
+			return true;
+		}
+		withinMask &= ~port.mask();
+		double effort = pids[i].update(error, dt);
+		if (Math.abs(effort) < minEffort) {
+			effort = Math.copySign(minEffort, error);
+		}
+		efforts[i] = effort;
+		return true;
+	}
+
+	/**
+	 * @return true, wenn alle Ports zuletzt innerhalb der Toleranz lagen
+	 */
+	boolean isWithinTolerance() {
+		return withinMask == portMask;
+	}
+
+	void markReached() {
+		reached = true;
+	}
+
+	/**
+	 * @return true, wenn die Bewegung ihr Ziel erreicht hat
+	 */
+	boolean isReached() {
+		return reached;
+	}
+}
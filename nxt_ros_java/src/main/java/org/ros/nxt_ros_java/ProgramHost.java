@@ -0,0 +1,278 @@
+package org.ros.nxt_ros_java;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Führt mehrere Steuerprogramme wie DriveUntilObstacle oder
+ * DriveUntilBlueBallAppears in einer JVM aus, statt jedes mit einer eigenen
+ * main-Methode in einem eigenen Prozess zu starten. Die Nodes aller Programme
+ * laufen auf dem gemeinsamen Executor der {@link TalkerFleet}.
+ *
+ * Jedes Programm läuft in einem eigenen Thread. Ab Java 21 sind das virtuelle
+ * Threads: Blockierende Aufrufe wie {@link Talker#runMotor} oder
+ * {@link Talker#awaitCondition} warten über CountDownLatch bzw. Condition und
+ * geben dabei ihren Träger-Thread frei, sodass auch hunderte gleichzeitig
+ * wartende Programme nur wenige Betriebssystem-Threads belegen. Auf älteren
+ * JVMs werden gewöhnliche Threads verwendet.
+ *
+ * Aufruf mit den Programmen, getrennt durch "--", jeweils gefolgt von ihren
+ * Argumenten, z.B.:
+ *
+ * <pre>
+ * ProgramHost DriveUntilObstacle __ns:=/nxt1 -- Wander __ns:=/nxt2
+ * </pre>
+ *
+ * Klassennamen ohne Paket werden in diesem Paket gesucht. Fehlt ein
+ * "__name:="-Argument, erhält jedes Programm einen eigenen Node-Namen, damit
+ * sich die Nodes am Master nicht gegenseitig verdrängen.
+ */
+public class ProgramHost {
+
+	private static final String SEPARATOR = "--";
+	private static final String NAME_REMAPPING = "__name:=";
+
+	private final ThreadFactory threadFactory;
+	private final boolean virtual;
+	private final List<Thread> threads = new ArrayList<Thread>();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	private int launched = 0;
+
+	/**
+	 * Erzeugt einen Host, der virtuelle Threads verwendet, sofern die JVM sie
+	 * unterstützt.
+	 */
+	public ProgramHost() {
+		ThreadFactory factory = virtualThreadFactory();
+		this.virtual = factory != null;
+		this.threadFactory = factory != null ? factory : new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "nxt-program-"
+						+ count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Liefert per Reflection Thread.ofVirtual().name(...).factory(), damit
+	 * die Bibliothek weiter mit Java 6 übersetzt werden kann.
+	 *
+	 * @return die Factory oder null, wenn die JVM keine virtuellen Threads
+	 *         kennt
+	 */
+	private static ThreadFactory virtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class
+					.forName("java.lang.Thread$Builder");
+			builder = builderClass.getMethod("name", String.class, long.class)
+					.invoke(builder, "nxt-program-", 0L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(
+					builder);
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (IllegalAccessException e) {
+			return null;
+		} catch (InvocationTargetException e) {
+			// z.B. UnsupportedOperationException, wenn virtuelle Threads als
+			// Vorschau abgeschaltet sind
+			return null;
+		}
+	}
+
+	/**
+	 * @return true, wenn die Programme in virtuellen Threads laufen
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * Startet die main-Methode eines Programms in einem eigenen Thread.
+	 *
+	 * @param className
+	 *            die Klasse, ohne Paket in diesem Paket gesucht
+	 * @param args
+	 *            die Argumente des Programms
+	 * @return der Thread des Programms
+	 * @throws IllegalArgumentException
+	 *             wenn die Klasse nicht gefunden wird oder keine öffentliche
+	 *             statische main-Methode hat
+	 */
+	public Thread launch(String className, String[] args) {
+		final Method main = findMain(className);
+		// Node-Name und Zähler in einem Schritt, sonst erhalten zwei
+		// gleichzeitig gestartete Programme denselben Namen
+		synchronized (this) {
+			final String[] programArgs = withNodeName(args, main
+					.getDeclaringClass().getSimpleName(), launched);
+			return launch(className, new Runnable() {
+				@Override
+				public void run() {
+					try {
+						main.invoke(null, (Object) programArgs);
+					} catch (IllegalAccessException e) {
+						throw new IllegalStateException(e);
+					} catch (InvocationTargetException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof RuntimeException) {
+							throw (RuntimeException) cause;
+						}
+						if (cause instanceof Error) {
+							throw (Error) cause;
+						}
+						throw new IllegalStateException(cause);
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Startet ein Programm in einem eigenen Thread, z.B. eine Schleife mit
+	 * einem {@link NxtJavaHandler}.
+	 *
+	 * @param name
+	 *            Name für Ausgaben
+	 * @return der Thread des Programms
+	 */
+	public synchronized Thread launch(final String name, final Runnable program) {
+		running.incrementAndGet();
+		launched++;
+		Thread thread = threadFactory.newThread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					program.run();
+				} catch (Throwable t) {
+					failed.incrementAndGet();
+					System.err.println("Programm " + name
+							+ " mit Fehler beendet:");
+					t.printStackTrace();
+				} finally {
+					running.decrementAndGet();
+				}
+			}
+		});
+		threads.add(thread);
+		thread.start();
+		return thread;
+	}
+
+	private static Method findMain(String className) {
+		Class<?> programClass;
+		try {
+			programClass = Class.forName(className.indexOf('.') < 0 ? ProgramHost.class
+					.getPackage().getName() + "." + className : className);
+		} catch (ClassNotFoundException e) {
+			throw new IllegalArgumentException("Programm nicht gefunden: "
+					+ className, e);
+		}
+		try {
+			Method main = programClass.getMethod("main", String[].class);
+			if (!Modifier.isStatic(main.getModifiers())) {
+				throw new IllegalArgumentException(className
+						+ ".main ist nicht statisch");
+			}
+			return main;
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException(className
+					+ " hat keine main-Methode", e);
+		}
+	}
+
+	/**
+	 * Hängt einen eindeutigen Node-Namen an, falls keiner angegeben ist.
+	 *
+	 * @param index
+	 *            die laufende Nummer des Programms
+	 */
+	private static String[] withNodeName(String[] args, String program,
+			int index) {
+		for (String arg : args) {
+			if (arg.startsWith(NAME_REMAPPING)) {
+				return args.clone();
+			}
+		}
+		String[] result = Arrays.copyOf(args, args.length + 1);
+		result[args.length] = NAME_REMAPPING + "nxt_"
+				+ program.toLowerCase() + "_" + index;
+		return result;
+	}
+
+	/**
+	 * Blockiert, bis alle gestarteten Programme beendet sind.
+	 *
+	 * @throws InterruptedException
+	 */
+	public void awaitAll() throws InterruptedException {
+		List<Thread> started;
+		synchronized (this) {
+			started = new ArrayList<Thread>(threads);
+		}
+		for (Thread thread : started) {
+			thread.join();
+		}
+	}
+
+	/**
+	 * @return Anzahl der Programme, die noch laufen
+	 */
+	public int getRunningCount() {
+		return running.get();
+	}
+
+	/**
+	 * @return Anzahl der Programme, die mit einer Ausnahme beendet wurden
+	 */
+	public int getFailedCount() {
+		return failed.get();
+	}
+
+	/**
+	 * Startet die angegebenen Programme und wartet, bis alle beendet sind.
+	 */
+	public static void main(String[] argv) throws Exception {
+		List<List<String>> programs = new ArrayList<List<String>>();
+		List<String> current = new ArrayList<String>();
+		for (String arg : argv) {
+			if (arg.equals(SEPARATOR)) {
+				programs.add(current);
+				current = new ArrayList<String>();
+			} else {
+				current.add(arg);
+			}
+		}
+		programs.add(current);
+
+		ProgramHost host = new ProgramHost();
+		System.out.println("Starte Programme in "
+				+ (host.isVirtual() ? "virtuellen" : "gewöhnlichen")
+				+ " Threads");
+		for (List<String> program : programs) {
+			if (program.isEmpty()) {
+				continue;
+			}
+			List<String> args = program.subList(1, program.size());
+			host.launch(program.get(0), args.toArray(new String[args.size()]));
+		}
+		host.awaitAll();
+		if (host.getFailedCount() > 0) {
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,25 @@
+package org.ros.nxt_ros_java;
+
+import org.ros.node.topic.Publisher;
+
+/**
+ * Leitet Nachrichten an einen rosjava-{@link Publisher} weiter.
+ */
+class PublisherSink<T> implements MessageSink<T> {
+
+	private final Publisher<T> publisher;
+
+	PublisherSink(Publisher<T> publisher) {
+		this.publisher = publisher;
+	}
+
+	@Override
+	public T newMessage() {
+		return publisher.newMessage();
+	}
+
+	@Override
+	public void publish(T message) {
+		publisher.publish(message);
+	}
+}
@@ -0,0 +1,224 @@
+package org.ros.nxt_ros_java;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Liest die Segmente eines {@link MessageRecorder}s der Reihe nach. Der Leser
+ * ist ein Cursor: {@link #next()} rückt zum nächsten Eintrag vor, dessen Felder
+ * dann über die Getter gelesen werden. Es ist immer nur ein Segment
+ * eingeblendet und es werden keine Objekte je Eintrag erzeugt, der
+ * Speicherbedarf hängt also nicht von der Länge der Aufzeichnung ab.
+ *
+ * Nicht threadsicher.
+ */
+public final class RecordingReader implements Closeable {
+
+	/**
+	 * Art eines Eintrags.
+	 */
+	public enum Kind {
+		SENSOR, JOINT_STATE, COMMAND
+	}
+
+	private static final Sensor[] SENSORS = Sensor.values();
+	private static final MotorPort[] PORTS = MotorPort.values();
+
+	private final File[] segments;
+	private int segmentIndex = -1;
+
+	private RandomAccessFile raf;
+	private MappedByteBuffer buffer;
+	private long segmentCount;
+	private long segmentStartWallNanos;
+	private long segmentStartNanos;
+	private long position;
+
+	// Der aktuelle Eintrag
+	private Kind kind;
+	private Sensor sensor;
+	private MotorPort port;
+	private long timeNanos;
+	private long headerStampNanos;
+	private final double[] values = new double[MessageRecorder.RECORD_VALUE_COUNT];
+
+	/**
+	 * Liest alle Segmente mit dem gegebenen Präfix, die beim Aufruf im
+	 * Verzeichnis liegen.
+	 */
+	public RecordingReader(File directory, String prefix) {
+		this(MessageRecorder.listSegments(directory, prefix));
+	}
+
+	/**
+	 * Liest die gegebenen Segmente in dieser Reihenfolge.
+	 */
+	public RecordingReader(File[] segments) {
+		this.segments = segments.clone();
+	}
+
+	/**
+	 * Rückt zum nächsten Eintrag vor. Einträge unbekannter Art werden
+	 * übersprungen.
+	 *
+	 * @return false, wenn alle Segmente gelesen sind
+	 * @throws IOException
+	 *             wenn ein Segment nicht gelesen werden kann oder keine
+	 *             Aufzeichnung ist
+	 */
+	public boolean next() throws IOException {
+		while (true) {
+			while (buffer == null || position == segmentCount) {
+				if (!openNextSegment()) {
+					return false;
+				}
+			}
+			int offset = (int) (MessageRecorder.HEADER_SIZE + position
+					* MessageRecorder.RECORD_SIZE);
+			position++;
+			if (read(offset)) {
+				return true;
+			}
+		}
+	}
+
+	private boolean read(int offset) {
+		byte kindCode = buffer.get(offset + MessageRecorder.RECORD_KIND);
+		int id = buffer.get(offset + MessageRecorder.RECORD_ID);
+		switch (kindCode) {
+		case MessageRecorder.KIND_SENSOR:
+			if (id < 0 || id >= SENSORS.length) {
+				return false;
+			}
+			kind = Kind.SENSOR;
+			sensor = SENSORS[id];
+			port = null;
+			break;
+		case MessageRecorder.KIND_JOINT_STATE:
+		case MessageRecorder.KIND_COMMAND:
+			if (id < 0 || id >= PORTS.length) {
+				return false;
+			}
+			kind = kindCode == MessageRecorder.KIND_COMMAND ? Kind.COMMAND
+					: Kind.JOINT_STATE;
+			sensor = null;
+			port = PORTS[id];
+			break;
+		default:
+			return false;
+		}
+		long receivedNanos = buffer.getLong(offset
+				+ MessageRecorder.RECORD_RECEIVED_NANOS);
+		timeNanos = segmentStartWallNanos
+				+ (receivedNanos - segmentStartNanos);
+		headerStampNanos = buffer.getLong(offset
+				+ MessageRecorder.RECORD_HEADER_STAMP_NANOS);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = buffer.getDouble(offset
+					+ MessageRecorder.RECORD_VALUES + 8 * i);
+		}
+		return true;
+	}
+
+	private boolean openNextSegment() throws IOException {
+		closeSegment();
+		if (segmentIndex + 1 >= segments.length) {
+			return false;
+		}
+		segmentIndex++;
+		File file = segments[segmentIndex];
+		raf = new RandomAccessFile(file, "r");
+		long length = raf.length();
+		if (length < MessageRecorder.HEADER_SIZE) {
+			throw new IOException("Keine Aufzeichnung: " + file);
+		}
+		buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0,
+				length);
+		if (buffer.getInt(MessageRecorder.HEADER_MAGIC) != MessageRecorder.MAGIC
+				|| buffer.getInt(MessageRecorder.HEADER_RECORD_SIZE) != MessageRecorder.RECORD_SIZE) {
+			throw new IOException("Keine Aufzeichnung: " + file);
+		}
+		if (buffer.getInt(MessageRecorder.HEADER_VERSION) != MessageRecorder.VERSION) {
+			throw new IOException("Unbekannte Version in " + file);
+		}
+		// Nach einem Absturz kann die Anzahl fehlen oder größer sein als die
+		// Datei; es wird nur gelesen, was vollständig vorhanden ist
+		long available = (length - MessageRecorder.HEADER_SIZE)
+				/ MessageRecorder.RECORD_SIZE;
+		segmentCount = Math.max(0, Math.min(available,
+				buffer.getLong(MessageRecorder.HEADER_COUNT)));
+		segmentStartWallNanos = buffer
+				.getLong(MessageRecorder.HEADER_START_WALL_MILLIS) * 1000000L;
+		segmentStartNanos = buffer.getLong(MessageRecorder.HEADER_START_NANOS);
+		position = 0;
+		return true;
+	}
+
+	private void closeSegment() throws IOException {
+		buffer = null;
+		if (raf != null) {
+			RandomAccessFile closing = raf;
+			raf = null;
+			closing.close();
+		}
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return der Sensor oder null, wenn der Eintrag kein Sensorwert ist
+	 */
+	public Sensor getSensor() {
+		return sensor;
+	}
+
+	/**
+	 * @return der Motor oder null, wenn der Eintrag ein Sensorwert ist
+	 */
+	public MotorPort getMotorPort() {
+		return port;
+	}
+
+	/**
+	 * @return Empfangszeitpunkt in ns seit 1970; innerhalb eines
+	 *         aufgezeichneten Laufs mit der Auflösung von
+	 *         {@link System#nanoTime()}
+	 */
+	public long getTimeNanos() {
+		return timeNanos;
+	}
+
+	/**
+	 * @return Zeitstempel aus dem Header der Nachricht in ns seit 1970 oder 0
+	 */
+	public long getHeaderStampNanos() {
+		return headerStampNanos;
+	}
+
+	/**
+	 * @param index
+	 *            0 bis 3, Bedeutung siehe {@link MessageRecorder}
+	 */
+	public double getValue(int index) {
+		return values[index];
+	}
+
+	/**
+	 * @return die Datei des aktuellen Eintrags
+	 */
+	public File getSegment() {
+		return segmentIndex < 0 ? null : segments[segmentIndex];
+	}
+
+	@Override
+	public void close() throws IOException {
+		segmentIndex = segments.length;
+		closeSegment();
+	}
+}
@@ -0,0 +1,207 @@
+package org.ros.nxt_ros_java;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ein Reflex, der Motoren direkt im Callback des Ultraschall- bzw. Tastsensors
+ * stoppt, sobald seine Bedingung eintritt, z.B. "wenn die Distanz unter 0,3 m
+ * fällt oder der Taster gedrückt ist, B und C anhalten". Anders als beim
+ * Abfragen in einer Schleife wird so spätestens mit der ersten Nachricht
+ * reagiert, die die Bedingung erfüllt.
+ *
+ * Ein Reflex wird mit {@link #stop(MotorPort...)} und den with-Methoden
+ * zusammengesetzt und mit {@link Talker#addReflex(ReflexRule)} angemeldet.
+ * Die Bedingungen sind oder-verknüpft. Solange die Bedingung gilt, hält der
+ * Reflex seine Motoren auf 0, d.h. neue Kommandos für diese Motoren werden
+ * durch 0 ersetzt; mit {@link #withHold(boolean)} wird stattdessen nur einmal
+ * beim Eintreten gestoppt, sodass z.B. zurückgesetzt werden kann.
+ *
+ * Die Einstellungen sind unveränderlich; der Zustand gehört zu dem Talker, bei
+ * dem der Reflex angemeldet ist. Ein Reflex kann nur bei einem Talker
+ * angemeldet werden.
+ */
+public final class ReflexRule {
+
+	private final int portMask;
+	private final double rangeBelow;
+	private final int rangeSamples;
+	private final boolean onContact;
+	private final boolean hold;
+
+	// Zustand, vom Talker in den Sensor-Callbacks gesetzt
+	private final AtomicBoolean active = new AtomicBoolean();
+	private final AtomicLong triggers = new AtomicLong();
+	private final AtomicBoolean registered = new AtomicBoolean();
+
+	private ReflexRule(int portMask, double rangeBelow, int rangeSamples,
+			boolean onContact, boolean hold) {
+		this.portMask = portMask;
+		this.rangeBelow = rangeBelow;
+		this.rangeSamples = rangeSamples;
+		this.onContact = onContact;
+		this.hold = hold;
+	}
+
+	/**
+	 * Liefert einen Reflex, der die gegebenen Motoren stoppt. Ohne weitere
+	 * Bedingung löst er nie aus.
+	 */
+	public static ReflexRule stop(MotorPort... ports) {
+		if (ports.length == 0) {
+			throw new IllegalArgumentException("Keine Motoren angegeben");
+		}
+		int mask = 0;
+		for (MotorPort port : ports) {
+			mask |= port.mask();
+		}
+		return new ReflexRule(mask, Double.NaN, 1, false, true);
+	}
+
+	/**
+	 * Löst aus, wenn der Ultraschallsensor eine Distanz unter der gegebenen
+	 * meldet.
+	 *
+	 * @param meters
+	 *            die Distanz in m
+	 */
+	public ReflexRule withRangeBelow(double meters) {
+		return withRangeBelow(meters, 1);
+	}
+
+	/**
+	 * Löst aus, wenn der Median der letzten Messungen des
+	 * Ultraschallsensors unter der gegebenen Distanz liegt, sodass einzelne
+	 * Fehlmessungen keinen Stopp auslösen. Dafür reagiert der Reflex erst
+	 * nach etwa samples / 2 Nachrichten.
+	 *
+	 * @param meters
+	 *            die Distanz in m
+	 * @param samples
+	 *            Anzahl der Messungen, siehe
+	 *            {@link SensorHistory#getMedian(int)}
+	 */
+	public ReflexRule withRangeBelow(double meters, int samples) {
+		if (!(meters > 0)) {
+			throw new IllegalArgumentException("Ungültige Distanz: " + meters);
+		}
+		if (samples <= 0 || samples > Talker.DEFAULT_HISTORY_CAPACITY) {
+			throw new IllegalArgumentException("Ungültige Anzahl: " + samples);
+		}
+		return new ReflexRule(portMask, meters, samples, onContact, hold);
+	}
+
+	/**
+	 * Löst aus, solange der Taster gedrückt ist.
+	 */
+	public ReflexRule withContact() {
+		return new ReflexRule(portMask, rangeBelow, rangeSamples, true, hold);
+	}
+
+	/**
+	 * @param pHold
+	 *            true, um die Motoren auf 0 zu halten, solange die Bedingung
+	 *            gilt (voreingestellt), false, um nur beim Eintreten einmal zu
+	 *            stoppen
+	 */
+	public ReflexRule withHold(boolean pHold) {
+		return new ReflexRule(portMask, rangeBelow, rangeSamples, onContact,
+				pHold);
+	}
+
+	/**
+	 * @return die Motoren, siehe {@link MotorPort#mask()}
+	 */
+	int getPortMask() {
+		return portMask;
+	}
+
+	public boolean isHolding() {
+		return hold;
+	}
+
+	/**
+	 * @return true, solange die Bedingung nach der letzten Sensornachricht
+	 *         gilt
+	 */
+	public boolean isActive() {
+		return active.get();
+	}
+
+	/**
+	 * @return wie oft der Reflex ausgelöst hat
+	 */
+	public long getTriggerCount() {
+		return triggers.get();
+	}
+
+	/**
+	 * Prüft die Bedingung mit den aktuellen Sensorwerten. Erzeugt keine
+	 * Objekte.
+	 */
+	boolean isSatisfied(Talker talker, SensorSnapshot snapshot) {
+		if (onContact && snapshot.getStamp(Sensor.CONTACT).getSequence() != 0
+				&& snapshot.getContact()) {
+			return true;
+		}
+		if (rangeBelow == rangeBelow
+				&& snapshot.getStamp(Sensor.RANGE).getSequence() != 0) {
+			if (rangeSamples == 1) {
+				return snapshot.getRange() < rangeBelow;
+			}
+			return talker.getHistory(Sensor.RANGE).getMedian(rangeSamples) < rangeBelow;
+		}
+		return false;
+	}
+
+	/**
+	 * Setzt den Zustand nach einer Prüfung.
+	 *
+	 * @return true, wenn die Bedingung gerade eingetreten ist
+	 */
+	boolean update(boolean satisfied) {
+		if (!satisfied) {
+			active.set(false);
+			return false;
+		}
+		if (active.compareAndSet(false, true)) {
+			triggers.incrementAndGet();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Vermerkt die Anmeldung bei einem Talker.
+	 *
+	 * @return false, wenn der Reflex bereits angemeldet war
+	 */
+	boolean register() {
+		return registered.compareAndSet(false, true);
+	}
+
+	void unregister() {
+		active.set(false);
+		registered.set(false);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder("ReflexRule[stop");
+		for (MotorPort port : MotorPort.values()) {
+			if ((portMask & port.mask()) != 0) {
+				text.append(' ').append(port);
+			}
+		}
+		if (rangeBelow == rangeBelow) {
+			text.append(", range < ").append(rangeBelow);
+			if (rangeSamples > 1) {
+				text.append(" (median of ").append(rangeSamples).append(')');
+			}
+		}
+		if (onContact) {
+			text.append(", contact");
+		}
+		return text.append(hold ? ", hold]" : ", once]").toString();
+	}
+}
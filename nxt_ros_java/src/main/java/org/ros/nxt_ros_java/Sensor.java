@@ -0,0 +1,10 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Die Sensoren, deren Nachrichten der {@link Talker} empfängt. Für jeden
+ * Sensor werden Empfangszeit und Sequenznummer der letzten Nachricht im
+ * {@link SensorSnapshot} festgehalten.
+ */
+public enum Sensor {
+	CONTACT, RANGE, INTENSITY, COLOR, GYRO, IMU, ACCELEROMETER
+}
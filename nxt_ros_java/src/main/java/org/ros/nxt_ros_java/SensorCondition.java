@@ -0,0 +1,21 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Eine Bedingung auf den Sensorwerten eines {@link Talker}s. Auf das Eintreten
+ * der Bedingung kann mit {@link Talker#awaitCondition(SensorCondition, long)}
+ * gewartet werden, ohne die Sensoren ständig abzufragen.
+ * 
+ * Die Bedingung wird nach jeder eingehenden Sensornachricht erneut geprüft und
+ * sollte deshalb schnell sein und nicht blockieren.
+ */
+public interface SensorCondition {
+
+	/**
+	 * Prüft, ob die Bedingung mit den aktuellen Sensorwerten erfüllt ist.
+	 * 
+	 * @param talker
+	 *            der Talker, dessen Sensorwerte geprüft werden
+	 * @return true, wenn die Bedingung erfüllt ist, sonst false
+	 */
+	boolean isSatisfied(Talker talker);
+}
@@ -0,0 +1,348 @@
+package org.ros.nxt_ros_java;
+
+import java.util.Arrays;
+
+/**
+ * Die letzten Werte eines Sensors in einem Ringpuffer fester Größe, mit
+ * Mittelwert, Minimum und Maximum über alle gespeicherten Werte und dem Median
+ * der letzten n Werte. So lassen sich verrauschte Messungen glätten oder
+ * entprellen, ohne dass jeder Aufrufer einen eigenen Puffer führt.
+ *
+ * Werte und Empfangszeitpunkte liegen in primitiven Arrays; weder das Einfügen
+ * noch die Abfragen erzeugen Objekte. Mittelwert, Minimum und Maximum kosten
+ * O(1): Die Summe wird laufend mitgeführt, Minimum und Maximum über
+ * monotone Warteschlangen. Die letzten {@link #DEFAULT_MEDIAN_WINDOW} Werte
+ * werden beim Einfügen zusätzlich sortiert gehalten, sodass auch ihr Median
+ * O(1) kostet. Der Talker füllt den Puffer in seinen Callbacks, gelesen werden
+ * darf aus beliebigen Threads.
+ */
+public final class SensorHistory {
+
+	/**
+	 * Voreingestellte Anzahl der neuesten Werte, die sortiert gehalten
+	 * werden; 5 Messungen genügen, um einzelne Ausreißer des
+	 * Ultraschallsensors zu verwerfen.
+	 */
+	public static final int DEFAULT_MEDIAN_WINDOW = 5;
+
+	private final double[] values;
+	private final long[] receivedNanos;
+
+	// Anzahl der bisher aufgenommenen Werte; der nächste Wert landet bei
+	// count % capacity
+	private long count = 0;
+	private double sum = 0;
+
+	// Monotone Warteschlangen aus Nummern (Wert Nummer k liegt bei
+	// k % capacity): vorne steht das Minimum bzw. Maximum des Fensters
+	private final long[] minQueue;
+	private final long[] maxQueue;
+	private int minHead = 0;
+	private int minSize = 0;
+	private int maxHead = 0;
+	private int maxSize = 0;
+
+	// Die neuesten min(count, Fenstergröße) Werte, aufsteigend sortiert
+	private final double[] sortedWindow;
+	private int windowSize = 0;
+
+	// Arbeitsfeld für den Median anderer Anzahlen
+	private final double[] medianScratch;
+
+	/**
+	 * @param capacity
+	 *            Anzahl der Werte, die höchstens gespeichert werden
+	 */
+	public SensorHistory(int capacity) {
+		this(capacity, Math.min(DEFAULT_MEDIAN_WINDOW, capacity));
+	}
+
+	/**
+	 * @param capacity
+	 *            Anzahl der Werte, die höchstens gespeichert werden
+	 * @param medianWindow
+	 *            Anzahl der neuesten Werte, deren Median
+	 *            {@link #getMedian(int)} in O(1) liefert
+	 */
+	public SensorHistory(int capacity, int medianWindow) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Ungültige Größe: " + capacity);
+		}
+		if (medianWindow <= 0 || medianWindow > capacity) {
+			throw new IllegalArgumentException("Ungültiges Fenster: "
+					+ medianWindow);
+		}
+		this.values = new double[capacity];
+		this.receivedNanos = new long[capacity];
+		this.minQueue = new long[capacity];
+		this.maxQueue = new long[capacity];
+		this.sortedWindow = new double[medianWindow];
+		this.medianScratch = new double[capacity];
+	}
+
+	/**
+	 * Nimmt einen Wert auf und verdrängt bei vollem Puffer den ältesten. NaN
+	 * wird nicht aufgenommen, da es Mittelwert und Vergleiche verfälschen
+	 * würde.
+	 *
+	 * @param nanos
+	 *            Empfangszeitpunkt in {@link System#nanoTime()}
+	 */
+	public synchronized void add(double value, long nanos) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		int capacity = values.length;
+		long number = count;
+		int slot = (int) (number % capacity);
+		if (number >= capacity) {
+			sum -= values[slot];
+			// Verdrängte Nummern vorne aus den Warteschlangen nehmen
+			long oldest = number - capacity + 1;
+			if (minSize > 0 && minQueue[minHead] < oldest) {
+				minHead = (minHead + 1) % capacity;
+				minSize--;
+			}
+			if (maxSize > 0 && maxQueue[maxHead] < oldest) {
+				maxHead = (maxHead + 1) % capacity;
+				maxSize--;
+			}
+		}
+		updateWindow(number, value);
+		values[slot] = value;
+		receivedNanos[slot] = nanos;
+		count = number + 1;
+
+		// Die Summe wird einmal je Umlauf neu gebildet, damit sich
+		// Rundungsfehler nicht aufsummieren
+		if (slot == capacity - 1) {
+			double fresh = 0;
+			for (int i = 0; i < capacity; i++) {
+				fresh += values[i];
+			}
+			sum = fresh;
+		} else {
+			sum += value;
+		}
+
+		while (minSize > 0
+				&& values[slotOf(minQueue[(minHead + minSize - 1) % capacity])] >= value) {
+			minSize--;
+		}
+		minQueue[(minHead + minSize) % capacity] = number;
+		minSize++;
+
+		while (maxSize > 0
+				&& values[slotOf(maxQueue[(maxHead + maxSize - 1) % capacity])] <= value) {
+			maxSize--;
+		}
+		maxQueue[(maxHead + maxSize) % capacity] = number;
+		maxSize++;
+	}
+
+	/**
+	 * Nimmt den Wert in das sortierte Fenster auf und entfernt den Wert, der
+	 * aus dem Fenster fällt. Muss vor dem Überschreiben im Ringpuffer
+	 * aufgerufen werden, da der verdrängte Wert dort noch gelesen wird.
+	 */
+	private void updateWindow(long number, double value) {
+		int window = sortedWindow.length;
+		int n = windowSize;
+		if (number >= window) {
+			double evicted = values[slotOf(number - window)];
+			int i = 0;
+			while (sortedWindow[i] != evicted) {
+				i++;
+			}
+			System.arraycopy(sortedWindow, i + 1, sortedWindow, i, n - i - 1);
+			n--;
+		}
+		int j = n;
+		while (j > 0 && sortedWindow[j - 1] > value) {
+			sortedWindow[j] = sortedWindow[j - 1];
+			j--;
+		}
+		sortedWindow[j] = value;
+		windowSize = n + 1;
+	}
+
+	private int slotOf(long number) {
+		return (int) (number % values.length);
+	}
+
+	/**
+	 * Verwirft alle gespeicherten Werte.
+	 */
+	public synchronized void clear() {
+		count = 0;
+		sum = 0;
+		minHead = 0;
+		minSize = 0;
+		maxHead = 0;
+		maxSize = 0;
+		windowSize = 0;
+	}
+
+	public int getCapacity() {
+		return values.length;
+	}
+
+	/**
+	 * @return Anzahl der gespeicherten Werte, höchstens
+	 *         {@link #getCapacity()}
+	 */
+	public synchronized int size() {
+		return (int) Math.min(count, values.length);
+	}
+
+	/**
+	 * @return Anzahl der bisher aufgenommenen Werte einschließlich der
+	 *         verdrängten
+	 */
+	public synchronized long getTotalCount() {
+		return count;
+	}
+
+	/**
+	 * @param age
+	 *            0 für den neuesten Wert, 1 für den davor usw.
+	 * @return der Wert oder NaN, wenn nicht so viele Werte gespeichert sind
+	 */
+	public synchronized double get(int age) {
+		if (age < 0 || age >= size()) {
+			return Double.NaN;
+		}
+		return values[slotOf(count - 1 - age)];
+	}
+
+	/**
+	 * @param age
+	 *            0 für den neuesten Wert, 1 für den davor usw.
+	 * @return Empfangszeitpunkt des Wertes in {@link System#nanoTime()} oder
+	 *         0, wenn nicht so viele Werte gespeichert sind
+	 */
+	public synchronized long getReceivedNanos(int age) {
+		if (age < 0 || age >= size()) {
+			return 0;
+		}
+		return receivedNanos[slotOf(count - 1 - age)];
+	}
+
+	/**
+	 * @return der neueste Wert oder NaN, wenn noch keiner aufgenommen wurde
+	 */
+	public double getLatest() {
+		return get(0);
+	}
+
+	/**
+	 * @return Mittelwert aller gespeicherten Werte oder NaN, wenn keine
+	 *         vorhanden sind
+	 */
+	public synchronized double getMean() {
+		int size = size();
+		if (size == 0) {
+			return Double.NaN;
+		}
+		return sum / size;
+	}
+
+	/**
+	 * @return kleinster gespeicherter Wert oder NaN, wenn keine vorhanden sind
+	 */
+	public synchronized double getMin() {
+		if (minSize == 0) {
+			return Double.NaN;
+		}
+		return values[slotOf(minQueue[minHead])];
+	}
+
+	/**
+	 * @return größter gespeicherter Wert oder NaN, wenn keine vorhanden sind
+	 */
+	public synchronized double getMax() {
+		if (maxSize == 0) {
+			return Double.NaN;
+		}
+		return values[slotOf(maxQueue[maxHead])];
+	}
+
+	/**
+	 * Liefert den Median der letzten n Werte, z.B. n = 5, um einzelne
+	 * Ausreißer des Ultraschallsensors zu verwerfen. Ist n die Größe des
+	 * sortierten Fensters, voreingestellt {@link #DEFAULT_MEDIAN_WINDOW},
+	 * kostet das O(1); ebenso, solange nicht mehr Werte gespeichert sind, als
+	 * das Fenster fasst. Für andere n werden die Werte per Einfügesortieren
+	 * sortiert, was O(n²) kostet, aber nicht von der Größe des Puffers
+	 * abhängt; gedacht ist das für kleine n.
+	 *
+	 * @param n
+	 *            Anzahl der neuesten Werte; sind weniger gespeichert, werden
+	 *            alle genommen
+	 * @return der Median oder NaN, wenn keine Werte vorhanden sind
+	 */
+	public synchronized double getMedian(int n) {
+		int size = Math.min(n, size());
+		if (size <= 0) {
+			return Double.NaN;
+		}
+		if (size == windowSize) {
+			return median(sortedWindow, size);
+		}
+		for (int i = 0; i < size; i++) {
+			medianScratch[i] = values[slotOf(count - 1 - i)];
+		}
+		// Für kleine n schneller als ein allgemeines Sortierverfahren
+		for (int i = 1; i < size; i++) {
+			double v = medianScratch[i];
+			int j = i - 1;
+			while (j >= 0 && medianScratch[j] > v) {
+				medianScratch[j + 1] = medianScratch[j];
+				j--;
+			}
+			medianScratch[j + 1] = v;
+		}
+		return median(medianScratch, size);
+	}
+
+	private static double median(double[] sorted, int size) {
+		if ((size & 1) == 1) {
+			return sorted[size / 2];
+		}
+		return (sorted[size / 2 - 1] + sorted[size / 2]) / 2;
+	}
+
+	/**
+	 * @return Anzahl der gespeicherten Werte, die höchstens maxAgeMillis alt
+	 *         sind
+	 */
+	public synchronized int countNewerThan(long maxAgeMillis) {
+		long limit = System.nanoTime() - maxAgeMillis * 1000000L;
+		int size = size();
+		int n = 0;
+		while (n < size && receivedNanos[slotOf(count - 1 - n)] - limit >= 0) {
+			n++;
+		}
+		return n;
+	}
+
+	/**
+	 * Kopiert die gespeicherten Werte vom ältesten zum neuesten in das Array.
+	 *
+	 * @return Anzahl der kopierten Werte
+	 */
+	public synchronized int copyValues(double[] target) {
+		int n = Math.min(size(), target.length);
+		for (int i = 0; i < n; i++) {
+			target[i] = values[slotOf(count - n + i)];
+		}
+		return n;
+	}
+
+	@Override
+	public synchronized String toString() {
+		double[] copy = new double[size()];
+		copyValues(copy);
+		return "SensorHistory" + Arrays.toString(copy);
+	}
+}
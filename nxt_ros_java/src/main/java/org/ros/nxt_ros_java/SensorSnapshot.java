@@ -0,0 +1,295 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Ein unveränderlicher Schnappschuss aller Sensorwerte eines {@link Talker}s.
+ * 
+ * Bei jeder eingehenden Sensornachricht wird ein neuer Schnappschuss erzeugt
+ * und mit einem einzigen Referenztausch veröffentlicht. Ein Leser sieht daher
+ * immer die Werte vollständiger Nachrichten, z.B. nie den Rotanteil einer und
+ * den Grünanteil einer anderen Farbnachricht. Nach der Veröffentlichung wird
+ * ein Schnappschuss nicht mehr verändert.
+ * 
+ * Zu jedem Sensor wird außerdem ein {@link SensorStamp} mit Empfangszeit und
+ * Sequenznummer geführt, damit veraltete Werte erkannt werden können.
+ */
+public final class SensorSnapshot {
+
+	/**
+	 * Schnappschuss vor dem Eintreffen der ersten Sensornachricht.
+	 */
+	static final SensorSnapshot EMPTY = new SensorSnapshot();
+
+	private boolean contact = false;
+	private double range = 0;
+	private double intensity = 0;
+
+	private double colorIntensity = 0;
+	private double colorR = 0;
+	private double colorG = 0;
+	private double colorB = 0;
+	private NxtJavaHandler.Farbe color = NxtJavaHandler.Farbe.UNGUELTIG;
+
+	private double gyroRate = 0;
+	private double imuRate = 0;
+	private double heading = 0;
+	private double accelerationX = 0;
+	private double accelerationY = 0;
+	private double accelerationZ = 0;
+
+	private long timestampNanos = 0;
+
+	// Stempel der letzten Nachricht je Sensor, Index ist Sensor.ordinal()
+	private SensorStamp[] stamps;
+
+	private SensorSnapshot() {
+		this.stamps = new SensorStamp[Sensor.values().length];
+		for (int i = 0; i < stamps.length; i++) {
+			stamps[i] = SensorStamp.NONE;
+		}
+	}
+
+	private SensorSnapshot(SensorStamp[] pStamps) {
+		this.stamps = pStamps;
+	}
+
+	/**
+	 * Kopiert alle Werte in einen neuen, noch nicht veröffentlichten
+	 * Schnappschuss und vergibt für den gegebenen Sensor einen neuen Stempel.
+	 */
+	private SensorSnapshot copy(Sensor sensor, long pTimestampNanos,
+			long receivedWallNanos, long headerStampNanos) {
+		SensorStamp[] nextStamps = this.stamps.clone();
+		nextStamps[sensor.ordinal()] = this.stamps[sensor.ordinal()].next(
+				pTimestampNanos, receivedWallNanos, headerStampNanos);
+		SensorSnapshot next = new SensorSnapshot(nextStamps);
+		next.contact = this.contact;
+		next.range = this.range;
+		next.intensity = this.intensity;
+		next.colorIntensity = this.colorIntensity;
+		next.colorR = this.colorR;
+		next.colorG = this.colorG;
+		next.colorB = this.colorB;
+		next.color = this.color;
+		next.gyroRate = this.gyroRate;
+		next.imuRate = this.imuRate;
+		next.heading = this.heading;
+		next.accelerationX = this.accelerationX;
+		next.accelerationY = this.accelerationY;
+		next.accelerationZ = this.accelerationZ;
+		next.timestampNanos = pTimestampNanos;
+		return next;
+	}
+
+	SensorSnapshot withContact(boolean pContact, long pTimestampNanos,
+			long receivedWallNanos, long headerStampNanos) {
+		SensorSnapshot next = copy(Sensor.CONTACT, pTimestampNanos,
+				receivedWallNanos, headerStampNanos);
+		next.contact = pContact;
+		return next;
+	}
+
+	SensorSnapshot withRange(double pRange, long pTimestampNanos,
+			long receivedWallNanos, long headerStampNanos) {
+		SensorSnapshot next = copy(Sensor.RANGE, pTimestampNanos,
+				receivedWallNanos, headerStampNanos);
+		next.range = pRange;
+		return next;
+	}
+
+	SensorSnapshot withIntensity(double pIntensity, long pTimestampNanos,
+			long receivedWallNanos, long headerStampNanos) {
+		SensorSnapshot next = copy(Sensor.INTENSITY, pTimestampNanos,
+				receivedWallNanos, headerStampNanos);
+		next.intensity = pIntensity;
+		return next;
+	}
+
+	SensorSnapshot withColor(double pIntensity, double r, double g, double b,
+			NxtJavaHandler.Farbe pColor, long pTimestampNanos,
+			long receivedWallNanos, long headerStampNanos) {
+		SensorSnapshot next = copy(Sensor.COLOR, pTimestampNanos,
+				receivedWallNanos, headerStampNanos);
+		next.colorIntensity = pIntensity;
+		next.colorR = r;
+		next.colorG = g;
+		next.colorB = b;
+		next.color = pColor;
+		return next;
+	}
+
+	SensorSnapshot withGyro(double pRate, long pTimestampNanos,
+			long receivedWallNanos, long headerStampNanos) {
+		SensorSnapshot next = copy(Sensor.GYRO, pTimestampNanos,
+				receivedWallNanos, headerStampNanos);
+		next.gyroRate = pRate;
+		return next;
+	}
+
+	/**
+	 * @param yaw
+	 *            die Ausrichtung aus der Nachricht in [-pi, pi]; sie wird zur
+	 *            bisherigen Ausrichtung fortgeschrieben, sodass
+	 *            {@link #getHeading()} auch über mehrere Umdrehungen stetig
+	 *            bleibt
+	 */
+	SensorSnapshot withImu(double yaw, double pRate, long pTimestampNanos,
+			long receivedWallNanos, long headerStampNanos) {
+		SensorSnapshot next = copy(Sensor.IMU, pTimestampNanos,
+				receivedWallNanos, headerStampNanos);
+		if (this.stamps[Sensor.IMU.ordinal()].getSequence() == 0) {
+			next.heading = yaw;
+		} else {
+			double delta = yaw - Math.IEEEremainder(this.heading, 2 * Math.PI);
+			next.heading = this.heading
+					+ Math.IEEEremainder(delta, 2 * Math.PI);
+		}
+		next.imuRate = pRate;
+		return next;
+	}
+
+	SensorSnapshot withAcceleration(double x, double y, double z,
+			long pTimestampNanos, long receivedWallNanos, long headerStampNanos) {
+		SensorSnapshot next = copy(Sensor.ACCELEROMETER, pTimestampNanos,
+				receivedWallNanos, headerStampNanos);
+		next.accelerationX = x;
+		next.accelerationY = y;
+		next.accelerationZ = z;
+		return next;
+	}
+
+	/**
+	 * @return true, wenn der Taster gedrückt ist, sonst false
+	 */
+	public boolean getContact() {
+		return contact;
+	}
+
+	/**
+	 * @return Die Distanz des Ultraschallsensors in m.
+	 */
+	public double getRange() {
+		return range;
+	}
+
+	/**
+	 * @return Die Helligkeit des Lichtsensors.
+	 */
+	public double getIntensity() {
+		return intensity;
+	}
+
+	public double getColorIntensity() {
+		return colorIntensity;
+	}
+
+	public double getColorR() {
+		return colorR;
+	}
+
+	public double getColorG() {
+		return colorG;
+	}
+
+	public double getColorB() {
+		return colorB;
+	}
+
+	/**
+	 * @return Die Standardfarbe, der die letzte Nachricht des Farbsensors beim
+	 *         Empfang zugeordnet wurde, oder UNGUELTIG, wenn noch keine
+	 *         eingetroffen ist.
+	 */
+	public NxtJavaHandler.Farbe getColor() {
+		return color;
+	}
+
+	/**
+	 * @return Die Drehrate um die Hochachse in rad/s laut Gyro-Nachricht,
+	 *         bereits um den im Treiber kalibrierten Offset bereinigt.
+	 */
+	public double getAngularVelocity() {
+		return gyroRate;
+	}
+
+	/**
+	 * @return Die Drehrate um die Hochachse in rad/s laut IMU-Nachricht.
+	 */
+	public double getImuAngularVelocity() {
+		return imuRate;
+	}
+
+	/**
+	 * @return Die Ausrichtung um die Hochachse in rad laut IMU-Nachricht.
+	 *         Der Wert läuft stetig weiter, springt also nach einer vollen
+	 *         Umdrehung nicht auf -pi zurück.
+	 */
+	public double getHeading() {
+		return heading;
+	}
+
+	/**
+	 * @return Die Beschleunigung entlang der x-Achse in m/s².
+	 */
+	public double getAccelerationX() {
+		return accelerationX;
+	}
+
+	/**
+	 * @return Die Beschleunigung entlang der y-Achse in m/s².
+	 */
+	public double getAccelerationY() {
+		return accelerationY;
+	}
+
+	/**
+	 * @return Die Beschleunigung entlang der z-Achse in m/s².
+	 */
+	public double getAccelerationZ() {
+		return accelerationZ;
+	}
+
+	/**
+	 * @return Zeitpunkt der letzten Sensornachricht in {@link System#nanoTime()}
+	 *         oder 0, wenn noch keine Nachricht eingetroffen ist
+	 */
+	public long getTimestampNanos() {
+		return timestampNanos;
+	}
+
+	/**
+	 * @return Stempel der letzten Nachricht des gegebenen Sensors
+	 */
+	public SensorStamp getStamp(Sensor sensor) {
+		return stamps[sensor.ordinal()];
+	}
+
+	/**
+	 * Prüft, ob der Wert des gegebenen Sensors höchstens so alt ist wie
+	 * angegeben.
+	 * 
+	 * @param sensor
+	 *            der zu prüfende Sensor
+	 * @param maxAgeMillis
+	 *            das erlaubte Alter in ms
+	 * @return dieser Schnappschuss, damit der Wert direkt gelesen werden kann
+	 * @throws StaleSensorDataException
+	 *             wenn der Wert älter ist oder noch keine Nachricht vorliegt
+	 */
+	public SensorSnapshot checkFresh(Sensor sensor, long maxAgeMillis) {
+		long age = getStamp(sensor).getAgeMillis();
+		if (age > maxAgeMillis) {
+			throw new StaleSensorDataException(sensor, age, maxAgeMillis);
+		}
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "SensorSnapshot[contact=" + contact + ", range=" + range
+				+ ", intensity=" + intensity + ", color=(" + colorR + ", "
+				+ colorG + ", " + colorB + ", " + colorIntensity + ")=" + color
+				+ ", gyro=" + gyroRate + ", heading=" + heading
+				+ ", acceleration=(" + accelerationX + ", " + accelerationY
+				+ ", " + accelerationZ + ")]";
+	}
+}
@@ -0,0 +1,85 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Zeitstempel und Sequenznummer der letzten Nachricht eines Sensors.
+ */
+public final class SensorStamp {
+
+	/**
+	 * Stempel eines Sensors, von dem noch keine Nachricht eingetroffen ist.
+	 */
+	static final SensorStamp NONE = new SensorStamp(0, 0, 0, 0);
+
+	private final long sequence;
+	private final long receivedNanos;
+	private final long receivedWallNanos;
+	private final long headerStampNanos;
+
+	SensorStamp(long sequence, long receivedNanos, long receivedWallNanos,
+			long headerStampNanos) {
+		this.sequence = sequence;
+		this.receivedNanos = receivedNanos;
+		this.receivedWallNanos = receivedWallNanos;
+		this.headerStampNanos = headerStampNanos;
+	}
+
+	/**
+	 * @return Anzahl der bisher von diesem Sensor empfangenen Nachrichten; 0,
+	 *         wenn noch keine eingetroffen ist
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	/**
+	 * @return Empfangszeitpunkt in {@link System#nanoTime()}
+	 */
+	public long getReceivedNanos() {
+		return receivedNanos;
+	}
+
+	/**
+	 * @return Zeitstempel aus dem Header der Nachricht in ns seit 1970 oder 0,
+	 *         wenn die Nachricht keinen Zeitstempel trägt
+	 */
+	public long getHeaderStampNanos() {
+		return headerStampNanos;
+	}
+
+	/**
+	 * Liefert die Zeit zwischen dem Erzeugen der Nachricht im Treiber und dem
+	 * Empfang im Talker. Der Wert ist nur aussagekräftig, wenn die Uhren von
+	 * Treiber- und Java-Rechner synchronisiert sind.
+	 * 
+	 * @return die Übertragungszeit in ns oder -1, wenn unbekannt
+	 */
+	public long getLatencyNanos() {
+		if (headerStampNanos == 0) {
+			return -1;
+		}
+		return receivedWallNanos - headerStampNanos;
+	}
+
+	/**
+	 * @return Alter der Nachricht in ms oder {@link Long#MAX_VALUE}, wenn noch
+	 *         keine Nachricht eingetroffen ist
+	 */
+	public long getAgeMillis() {
+		if (sequence == 0) {
+			return Long.MAX_VALUE;
+		}
+		return (System.nanoTime() - receivedNanos) / 1000000L;
+	}
+
+	SensorStamp next(long pReceivedNanos, long pReceivedWallNanos,
+			long pHeaderStampNanos) {
+		return new SensorStamp(sequence + 1, pReceivedNanos,
+				pReceivedWallNanos, pHeaderStampNanos);
+	}
+
+	@Override
+	public String toString() {
+		return "SensorStamp[sequence=" + sequence + ", age=" + getAgeMillis()
+				+ " ms, latency=" + getLatencyNanos() + " ns]";
+	}
+}
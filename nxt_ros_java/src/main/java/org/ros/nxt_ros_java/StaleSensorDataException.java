@@ -0,0 +1,58 @@
+package org.ros.nxt_ros_java;
+
+/**
+ * Laufzeit-Fehler, der geworfen wird, wenn ein Sensorwert älter als erlaubt
+ * ist oder von dem Sensor noch gar keine Nachricht eingetroffen ist. Gilt
+ * ebenso für den Zustand eines Motors aus joint_state.
+ */
+public class StaleSensorDataException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Sensor sensor;
+	private final MotorPort motorPort;
+	private final long ageMillis;
+
+	public StaleSensorDataException(Sensor sensor, long ageMillis,
+			long maxAgeMillis) {
+		this("Sensor " + sensor, sensor, null, ageMillis, maxAgeMillis);
+	}
+
+	public StaleSensorDataException(MotorPort motorPort, long ageMillis,
+			long maxAgeMillis) {
+		this("Motor " + motorPort, null, motorPort, ageMillis, maxAgeMillis);
+	}
+
+	private StaleSensorDataException(String source, Sensor sensor,
+			MotorPort motorPort, long ageMillis, long maxAgeMillis) {
+		super(ageMillis == Long.MAX_VALUE ? "Vom " + source
+				+ " ist noch keine Nachricht eingetroffen" : "Der Wert des "
+				+ source + " ist " + ageMillis + " ms alt (erlaubt: "
+				+ maxAgeMillis + " ms)");
+		this.sensor = sensor;
+		this.motorPort = motorPort;
+		this.ageMillis = ageMillis;
+	}
+
+	/**
+	 * @return der betroffene Sensor oder null, wenn es um einen Motor geht
+	 */
+	public Sensor getSensor() {
+		return sensor;
+	}
+
+	/**
+	 * @return der betroffene Motor oder null, wenn es um einen Sensor geht
+	 */
+	public MotorPort getMotorPort() {
+		return motorPort;
+	}
+
+	/**
+	 * @return Alter des Wertes in ms oder {@link Long#MAX_VALUE}, wenn noch
+	 *         keine Nachricht eingetroffen ist
+	 */
+	public long getAgeMillis() {
+		return ageMillis;
+	}
+}
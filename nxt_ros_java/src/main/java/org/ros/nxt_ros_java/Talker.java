@@ -1,13 +1,34 @@
 package org.ros.nxt_ros_java;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import geometry_msgs.Quaternion;
+import geometry_msgs.Vector3;
+import nxt_msgs.Accelerometer;
 import nxt_msgs.Color;
 import nxt_msgs.Contact;
+import nxt_msgs.Gyro;
 import nxt_msgs.Range;
+import sensor_msgs.Imu;
+import std_msgs.Header;
 
+import org.ros.message.MessageFactory;
 import org.ros.message.MessageListener;
 import org.ros.namespace.GraphName;
 import org.ros.node.AbstractNodeMain;
 import org.ros.node.ConnectedNode;
+import org.ros.node.NodeConfiguration;
 import org.ros.node.NodeMain;
 import org.ros.node.topic.Publisher;
 import org.ros.node.topic.Subscriber;
@@ -22,11 +43,44 @@ import org.ros.node.topic.Subscriber;
  * @author damonkohler@google.com (Damon Kohler)
  */
 public class Talker extends AbstractNodeMain {
-	ConnectedNode connectedNode = null;
+
+	// Gemeinsamer Scheduler, der die zeitgesteuerten Motorstopps aller Talker
+	// und die Regelschritte der DifferentialDrives ausführt
+	static final ScheduledExecutorService MOTOR_SCHEDULER = Executors
+			.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "nxt-motor-scheduler");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+
+	private static final MotorPort[] PORTS = MotorPort.values();
+
+	volatile ConnectedNode connectedNode = null;
+
+	// Wird am Ende von onStart geöffnet, wenn Publisher und Subscriber
+	// angelegt sind
+	private final CountDownLatch started = new CountDownLatch(1);
+
+	// So lange wartet waitForNode höchstens darauf, dass der Treiber erreichbar
+	// ist; entspricht der früheren festen Wartezeit
+	private static final long READY_TIMEOUT_MILLIS = 1000;
+
+	// Abstand, in dem awaitReady prüft, ob sich der Treiber als Subscriber
+	// angemeldet hat; Sensornachrichten wecken sofort
+	private static final long READY_POLL_MILLIS = 10;
+
+	// Topics und Node-Name dieses Talkers
+	private final TopicMap topics;
 
 	// Publisher für Motorkommandos
 	private Publisher<nxt_msgs.JointCommand> publisherJointCommand;
 
+	// Publisher für Kommandos an mehrere Motoren in einer Nachricht
+	private Publisher<sensor_msgs.JointState> publisherJointCommands;
+
 	// Subscriber für Kontaktsensor
 	private Subscriber<nxt_msgs.Contact> subscriberContact;
 
@@ -37,31 +91,318 @@ public class Talker extends AbstractNodeMain {
 	
 	private Subscriber<nxt_msgs.Color> subscriberColorIntensity;
 
-	boolean contactStatus = false;
-	double range = 0;
-	double intensity = 0;
-	
-	double colorIntensity=0;
-	double colorR=0;
-	double colorG=0;
-	double colorB=0;
+	private Subscriber<sensor_msgs.JointState> subscriberJointState;
+
+	private Subscriber<nxt_msgs.Gyro> subscriberGyro;
+
+	private Subscriber<sensor_msgs.Imu> subscriberImu;
+
+	private Subscriber<nxt_msgs.Accelerometer> subscriberAccelerometer;
+
+	// Die Listener sind package-private, damit die Benchmarks sie ohne
+	// ROS-Master mit Platzhalter-Nachrichten aufrufen können.
+	final MessageListener<nxt_msgs.Range> rangeListener = new MessageListener<nxt_msgs.Range>() {
+		@Override
+		public void onNewMessage(Range message) {
+			updateRange(message.getRange(), stampNanos(message.getHeader()));
+		}
+	};
+
+	final MessageListener<nxt_msgs.Contact> contactListener = new MessageListener<nxt_msgs.Contact>() {
+		@Override
+		public void onNewMessage(Contact message) {
+			updateContact(message.getContact(),
+					stampNanos(message.getHeader()));
+		}
+	};
+
+	final MessageListener<Color> intensityListener = new MessageListener<Color>() {
+		@Override
+		public void onNewMessage(Color message) {
+			updateIntensity(message.getIntensity(),
+					stampNanos(message.getHeader()));
+		}
+	};
+
+	final MessageListener<Color> colorListener = new MessageListener<Color>() {
+		@Override
+		public void onNewMessage(Color message) {
+			updateColor(message.getIntensity(), message.getR(),
+					message.getG(), message.getB(),
+					stampNanos(message.getHeader()));
+		}
+	};
+
+	final MessageListener<nxt_msgs.Gyro> gyroListener = new MessageListener<nxt_msgs.Gyro>() {
+		@Override
+		public void onNewMessage(Gyro message) {
+			updateGyro(message.getAngularVelocity().getZ(),
+					stampNanos(message.getHeader()));
+		}
+	};
+
+	final MessageListener<sensor_msgs.Imu> imuListener = new MessageListener<sensor_msgs.Imu>() {
+		@Override
+		public void onNewMessage(Imu message) {
+			updateImu(yaw(message.getOrientation()), message
+					.getAngularVelocity().getZ(),
+					stampNanos(message.getHeader()));
+		}
+	};
+
+	final MessageListener<nxt_msgs.Accelerometer> accelerometerListener = new MessageListener<nxt_msgs.Accelerometer>() {
+		@Override
+		public void onNewMessage(Accelerometer message) {
+			Vector3 acceleration = message.getLinearAcceleration();
+			updateAcceleration(acceleration.getX(), acceleration.getY(),
+					acceleration.getZ(), stampNanos(message.getHeader()));
+		}
+	};
+
+	final MessageListener<sensor_msgs.JointState> jointStateListener = new MessageListener<sensor_msgs.JointState>() {
+		@Override
+		public void onNewMessage(sensor_msgs.JointState message) {
+			updateJointStates(message.getName(), message.getPosition(),
+					message.getVelocity(), message.getEffort(),
+					stampNanos(message.getHeader()));
+		}
+	};
+
+	// Zuletzt veröffentlichter Schnappschuss aller Sensorwerte
+	private final AtomicReference<SensorSnapshot> snapshot = new AtomicReference<SensorSnapshot>(
+			SensorSnapshot.EMPTY);
+
+	// Sorgt dafür, dass ein geplanter Stopp nie nach einem neueren Kommando
+	// für denselben Motor veröffentlicht wird; schützt auch die folgenden
+	// Felder
+	private final Object commandLock = new Object();
+
+	// Vorab erzeugte Motorkommandos, siehe attachCommandSinks
+	private CommandMessages commandMessages;
+
+	// Laufende Bewegung je Port (Index MotorPort.ordinal()), deren Stopp noch
+	// aussteht
+	private final MotorMotion[] activeMotions = new MotorMotion[PORTS.length];
+
+	// Arbeitsfelder, damit beim Kommandieren keine Objekte erzeugt werden
+	private final double[] effortScratch = new double[PORTS.length];
+	private final MotorMotion[] supersededScratch = new MotorMotion[PORTS.length];
+	private final MotorMotion[] reachedScratch = new MotorMotion[PORTS.length];
+
+	/**
+	 * Voreingestellte Höchstrate in Hz, mit der je Motor Kommandos
+	 * veröffentlicht werden.
+	 */
+	public static final double DEFAULT_MAX_COMMAND_RATE_HZ = 50;
+
+	// Eine unveränderte Kraft wird spätestens nach dieser Zeit erneut
+	// veröffentlicht, falls der Treiber eine Nachricht verpasst hat, z.B.
+	// weil er sich erst später verbunden hat
+	private static final long COMMAND_REFRESH_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(500);
+
+	// Der Takt, der zurückgehaltene Kräfte nachreicht, läuft mit einem
+	// Bruchteil des Mindestabstands, sodass sie höchstens so viel später als
+	// nötig gesendet werden, und endet erst, wenn so lange nichts mehr
+	// zurückgehalten wurde. Solange kommandiert wird, wird er also nicht neu
+	// eingeplant und es werden keine Objekte erzeugt
+	private static final int FLUSH_TICKS_PER_INTERVAL = 4;
+	private static final long MIN_FLUSH_TICK_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(1);
+	private static final long FLUSH_IDLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	// Zusammenfassen der Kommandos je Port (Index MotorPort.ordinal()), unter
+	// commandLock: zuletzt veröffentlichte Kraft und wann, sowie die Kraft,
+	// die wegen der Höchstrate noch aussteht
+	private volatile long minCommandIntervalNanos = (long) (1e9 / DEFAULT_MAX_COMMAND_RATE_HZ);
+	private final double[] publishedEfforts = newNaNs(PORTS.length);
+	private final long[] publishedNanos = new long[PORTS.length];
+	private final double[] pendingEfforts = new double[PORTS.length];
+	private int pendingMask = 0;
+	private ScheduledFuture<?> flushTick;
+	private long lastPendingNanos = 0;
+	private long commandsPublished = 0;
+	private long commandsSuppressed = 0;
+	private long commandsCoalesced = 0;
+
+	// Angemeldete Reflexe; bei Änderungen unter commandLock als Ganzes
+	// ersetzt, damit die Sensor-Callbacks ohne Sperre darüber iterieren
+	private volatile ReflexRule[] reflexes = new ReflexRule[0];
+	// Motoren, die ein haltender Reflex gerade auf 0 hält, unter commandLock
+	private int reflexHoldMask = 0;
+
+	private final Runnable flushTask = new Runnable() {
+		@Override
+		public void run() {
+			synchronized (commandLock) {
+				if (pendingMask != 0) {
+					flushPendingCommands();
+				} else if (flushTick != null
+						&& System.nanoTime() - lastPendingNanos > FLUSH_IDLE_NANOS) {
+					flushTick.cancel(false);
+					flushTick = null;
+				}
+			}
+		}
+	};
+
+	// Einstellungen für Bewegungen auf einen Zielwinkel
+	private volatile PositionControlSettings positionControlSettings = PositionControlSettings.DEFAULT;
+
+	// Radius der Antriebsräder in m, Standardrad des NXT-Baukastens
+	private volatile double wheelRadius = 0.028;
+
+	// Sperre, über die wartende Threads bei neuen Sensorwerten geweckt
+	// werden. Anders als bei synchronized und wait() geben virtuelle Threads
+	// beim Warten ihren Träger-Thread frei, siehe ProgramHost
+	private final ReentrantLock sensorLock = new ReentrantLock();
+	private final Condition sensorUpdated = sensorLock.newCondition();
+
+	// Zuletzt gemeldeter Zustand je Motor (Index MotorPort.ordinal()). Die
+	// Motoren werden unabhängig voneinander aktualisiert, da der Treiber sie
+	// in getrennten Nachrichten meldet.
+	private final AtomicReferenceArray<JointStateSample> jointStates = newJointStates();
+
+	// Ordnet die Werte des Farbsensors den Standardfarben zu
+	private final ColorClassifier colorClassifier = new ColorClassifier();
+
+	/**
+	 * Anzahl der Werte, die je Sensor im Verlauf gespeichert werden.
+	 */
+	public static final int DEFAULT_HISTORY_CAPACITY = 32;
+
+	// Verlauf je Sensor (Index Sensor.ordinal()); für den
+	// Beschleunigungssensor mit seinen drei Achsen wird keiner geführt
+	private final SensorHistory[] histories = newHistories();
+
+	// Zeichnet Sensornachrichten und Kommandos auf, wenn gesetzt
+	private volatile MessageRecorder recorder = null;
+
+	/**
+	 * Erzeugt einen Talker mit den Standard-Topics und ohne Namensraum.
+	 */
+	public Talker() {
+		this(TopicMap.DEFAULT);
+	}
+
+	/**
+	 * Erzeugt einen Talker mit eigenen Topics, z.B. in einem Namensraum je
+	 * Roboter, damit mehrere Talker in einer JVM laufen können.
+	 */
+	public Talker(TopicMap topics) {
+		if (topics == null) {
+			throw new NullPointerException("topics");
+		}
+		this.topics = topics;
+	}
+
+	public TopicMap getTopicMap() {
+		return topics;
+	}
+
 	/**
 	 * Wartet so lange ab, bis sich die Node mit dem Master verbunden hat.
 	 */
 	
 	public void waitForNode() {
-		while (this.connectedNode == null) {
-			try {
-				Thread.sleep(100);
-			} catch (Exception e) {
+		try {
+			awaitStarted(0);
+			// Ohne Treiber wie bisher nach spätestens einer Sekunde weiter
+			awaitReady(READY_TIMEOUT_MILLIS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Blockiert, bis onStart Publisher und Subscriber angelegt hat.
+	 * 
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn die Node gestartet ist, false bei Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean awaitStarted(long timeoutMillis)
+			throws InterruptedException {
+		if (timeoutMillis == 0) {
+			started.await();
+			return true;
+		}
+		return started.await(timeoutMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Prüft, ob der Treiber erreichbar ist: Die Node ist gestartet und der
+	 * Treiber hat entweder die Motorkommandos abonniert oder bereits eine
+	 * Sensor- oder Motornachricht geschickt.
+	 */
+	public boolean isReady() {
+		if (started.getCount() != 0) {
+			return false;
+		}
+		// Ohne ROS-Master (siehe startOffline) gibt es keine Publisher
+		if (publisherJointCommand != null
+				&& (publisherJointCommand.hasSubscribers() || publisherJointCommands
+						.hasSubscribers())) {
+			return true;
+		}
+		return hasReceivedMessage();
+	}
 
+	/**
+	 * @return true, wenn bereits eine Sensor- oder Motornachricht
+	 *         eingetroffen ist
+	 */
+	private boolean hasReceivedMessage() {
+		SensorSnapshot current = snapshot.get();
+		for (Sensor sensor : Sensor.values()) {
+			if (current.getStamp(sensor).getSequence() != 0) {
+				return true;
+			}
+		}
+		for (int i = 0; i < PORTS.length; i++) {
+			if (jointStates.get(i).getStamp().getSequence() != 0) {
+				return true;
 			}
 		}
+		return false;
+	}
+
+	/**
+	 * Blockiert, bis {@link #isReady()} gilt. Die erste Sensornachricht weckt
+	 * sofort; ob sich der Treiber als Subscriber angemeldet hat, wird alle
+	 * paar Millisekunden geprüft.
+	 * 
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn der Treiber erreichbar ist, false bei
+	 *         Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean awaitReady(long timeoutMillis) throws InterruptedException {
+		long deadline = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		if (!awaitStarted(timeoutMillis)) {
+			return false;
+		}
+		sensorLock.lockInterruptibly();
 		try {
-			Thread.sleep(1000);
-		} catch (InterruptedException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			while (!isReady()) {
+				long wait = TimeUnit.MILLISECONDS.toNanos(READY_POLL_MILLIS);
+				if (timeoutMillis != 0) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						return false;
+					}
+					wait = Math.min(wait, remaining);
+				}
+				sensorUpdated.awaitNanos(wait);
+			}
+			return true;
+		} finally {
+			sensorLock.unlock();
 		}
 	}
 
@@ -79,11 +420,13 @@ public class Talker extends AbstractNodeMain {
 	@Deprecated
 	public void runMotorA(int duration, double effort)
 			throws InterruptedException {
-		runMotor("a",duration,effort);
+		runMotor(MotorPort.A,duration,effort);
 	}
 	
 	/**
 	 * Let the motor with the ID motorID run for "duration" with the effort "effort".
+	 * Blocks until the motor has been stopped or a newer command for the same
+	 * motor has taken over.
 	 * @param motorID Can be "a","b" or "c"
 	 * @param duration
 	 * @param effort
@@ -91,16 +434,53 @@ public class Talker extends AbstractNodeMain {
 	 */
 	public void runMotor(String motorID, int duration, double effort)
 			throws InterruptedException {
-		nxt_msgs.JointCommand command1 = publisherJointCommand.newMessage();
-		command1.setName(motorID + "_motor_joint");
-		command1.setEffort(effort);
-		publisherJointCommand.publish(command1);
-		if (duration != 0) {
-			Thread.sleep(duration);
-			command1.setName(motorID + "_motor_joint");
-			command1.setEffort(0);
-			publisherJointCommand.publish(command1);
-		}
+		runMotor(MotorPort.fromMotorID(motorID), duration, effort);
+	}
+
+	/**
+	 * Let the motor at the given port run for "duration" with the effort "effort".
+	 * Blocks until the motor has been stopped or a newer command for the same
+	 * motor has taken over.
+	 * @param port
+	 * @param duration
+	 * @param effort
+	 * @throws InterruptedException
+	 */
+	public void runMotor(MotorPort port, int duration, double effort)
+			throws InterruptedException {
+		runMotorAsync(port, duration, effort).get();
+	}
+
+	/**
+	 * Startet den Motor und kehrt sofort zurück. Das Stoppen nach Ablauf der
+	 * Dauer übernimmt ein gemeinsamer Scheduler. Ein neueres Kommando für
+	 * denselben Motor verwirft den geplanten Stopp.
+	 * 
+	 * @param motorID
+	 *            Entweder "a", "b" oder "c"
+	 * @param duration
+	 *            Wenn 0, bewegt sich der Motor unendlich lange. Sonst soviele
+	 *            Millisekunden wie angegeben. Motor rollt danach aus.
+	 * @param effort
+	 *            Die Kraft, mit der sich der Motor bewegen soll. Negatives
+	 *            Vorzeichen dreht den Motor in die andere Richtung.
+	 * @return die Bewegung, mit der auf das Ende gewartet oder vorzeitig
+	 *         gestoppt werden kann
+	 */
+	public MotorMotion runMotorAsync(String motorID, int duration,
+			double effort) {
+		return runMotorAsync(MotorPort.fromMotorID(motorID), duration, effort);
+	}
+
+	/**
+	 * Startet den Motor an dem gegebenen Port und kehrt sofort zurück. Mit
+	 * duration 0 werden dabei keine Objekte erzeugt.
+	 * 
+	 * @see #runMotorAsync(String, int, double)
+	 */
+	public MotorMotion runMotorAsync(MotorPort port, int duration,
+			double effort) {
+		return startMotion(duration, effort, port.mask());
 	}
 
 	/**
@@ -117,7 +497,7 @@ public class Talker extends AbstractNodeMain {
 	@Deprecated
 	public void runMotorB(int duration, double effort)
 			throws InterruptedException {
-		runMotor("b",duration,effort);
+		runMotor(MotorPort.B,duration,effort);
 	}
 
 	/**
@@ -134,7 +514,7 @@ public class Talker extends AbstractNodeMain {
 	@Deprecated
 	public void runMotorC(int duration, double effort)
 			throws InterruptedException {
-		runMotor("c",duration,effort);
+		runMotor(MotorPort.C,duration,effort);
 	}
 
 	/**
@@ -154,135 +534,1462 @@ public class Talker extends AbstractNodeMain {
 	 */
 	public void runTwoMotors(String motor1, String motor2, int duration,
 			double effort) throws InterruptedException {
-		System.out.println("Zwei motoren sollen laufen");
-		nxt_msgs.JointCommand command1 = publisherJointCommand.newMessage();
-		nxt_msgs.JointCommand command2 = publisherJointCommand.newMessage();
-		command1.setName(motor1 + "_motor_joint");
-		command1.setEffort(effort);
-		publisherJointCommand.publish(command1);
-		command2.setName(motor2 + "_motor_joint");
-		command2.setEffort(effort);
-		publisherJointCommand.publish(command2);
+		runTwoMotors(MotorPort.fromMotorID(motor1),
+				MotorPort.fromMotorID(motor2), duration, effort);
+	}
+
+	/**
+	 * Lässt die Motoren an zwei Ports gleichzeitig laufen.
+	 * 
+	 * @see #runTwoMotors(String, String, int, double)
+	 */
+	public void runTwoMotors(MotorPort port1, MotorPort port2, int duration,
+			double effort) throws InterruptedException {
+		runTwoMotorsAsync(port1, port2, duration, effort).get();
+	}
+
+	/**
+	 * Startet zwei Motoren gleichzeitig und kehrt sofort zurück.
+	 * 
+	 * @param motor1
+	 *            Entweder "a", "b" oder "c"
+	 * @param motor2
+	 *            Entweder "a", "b" oder "c"
+	 * @param duration
+	 *            Wenn 0, bewegen sich die Motoren unendlich lange. Sonst
+	 *            soviele Millisekunden wie angegeben. Motoren rollen danach
+	 *            aus.
+	 * @param effort
+	 *            Die Kraft, mit der sich die Motoren bewegen sollen. Negatives
+	 *            Vorzeichen dreht die Motoren in die andere Richtung.
+	 * @return die Bewegung, mit der auf das Ende gewartet oder vorzeitig
+	 *         gestoppt werden kann
+	 */
+	public MotorMotion runTwoMotorsAsync(String motor1, String motor2,
+			int duration, double effort) {
+		return runTwoMotorsAsync(MotorPort.fromMotorID(motor1),
+				MotorPort.fromMotorID(motor2), duration, effort);
+	}
+
+	/**
+	 * Startet die Motoren an zwei Ports gleichzeitig und kehrt sofort zurück.
+	 * Mit duration 0 werden dabei keine Objekte erzeugt.
+	 * 
+	 * @see #runTwoMotorsAsync(String, String, int, double)
+	 */
+	public MotorMotion runTwoMotorsAsync(MotorPort port1, MotorPort port2,
+			int duration, double effort) {
+		return startMotion(duration, effort, port1.mask() | port2.mask());
+	}
+
+	/**
+	 * Veröffentlicht die Kraft für alle Ports der Maske und plant, falls eine
+	 * Dauer angegeben ist, den Stopp auf dem gemeinsamen Scheduler.
+	 */
+	private MotorMotion startMotion(int duration, double effort, int mask) {
+		final MotorMotion motion = duration == 0 ? MotorMotion.UNTIMED
+				: new MotorMotion(this, mask);
+		synchronized (commandLock) {
+			for (MotorPort port : PORTS) {
+				if ((mask & port.mask()) != 0) {
+					int i = port.ordinal();
+					supersededScratch[i] = activeMotions[i];
+					activeMotions[i] = duration == 0 ? null : motion;
+					effortScratch[i] = effort;
+				}
+			}
+			releaseSuperseded();
+			publishCommands(mask, effortScratch);
+		}
 		if (duration != 0) {
-			Thread.sleep(duration);
-			command1.setEffort(0);
-			publisherJointCommand.publish(command1);
-			command2.setEffort(0);
-			publisherJointCommand.publish(command2);
+			motion.setScheduledStop(MOTOR_SCHEDULER.schedule(new Runnable() {
+				@Override
+				public void run() {
+					finishMotion(motion);
+				}
+			}, duration, TimeUnit.MILLISECONDS));
 		}
+		return motion;
 	}
 
 	/**
-	 * Setzt die Kraft aller Motoren auf 0.
+	 * Stoppt alle Motoren, die noch zu der gegebenen Bewegung gehören, und
+	 * schließt die Bewegung ab.
+	 * 
+	 * @return true, wenn mindestens ein Motor gestoppt wurde
 	 */
-	public void allMotorStop() {
-		nxt_msgs.JointCommand command1 = publisherJointCommand.newMessage();
-		nxt_msgs.JointCommand command2 = publisherJointCommand.newMessage();
-		nxt_msgs.JointCommand command3 = publisherJointCommand.newMessage();
-		command1.setName("a_motor_joint");
-		command1.setEffort(0);
-		publisherJointCommand.publish(command1);
-		command2.setName("b_motor_joint");
-		command2.setEffort(0);
-		publisherJointCommand.publish(command2);
-		command3.setName("c_motor_joint");
-		command3.setEffort(0);
-		publisherJointCommand.publish(command3);
+	boolean finishMotion(MotorMotion motion) {
+		int stopped = 0;
+		synchronized (commandLock) {
+			for (MotorPort port : PORTS) {
+				int i = port.ordinal();
+				if ((motion.getPortMask() & port.mask()) != 0
+						&& activeMotions[i] == motion) {
+					activeMotions[i] = null;
+					effortScratch[i] = 0;
+					stopped |= port.mask();
+				}
+			}
+			publishCommands(stopped, effortScratch, true);
+		}
+		motion.complete(stopped != 0);
+		return stopped != 0;
 	}
 
-	public boolean getContact(){
-		return contactStatus;
+	/**
+	 * Veröffentlicht die Kräfte für die Ports der Maske, fasst dabei aber
+	 * Kommandos je Motor zusammen: Eine unveränderte Kraft wird nur alle
+	 * {@link #COMMAND_REFRESH_NANOS} erneut gesendet, und eine neue Kraft, die
+	 * schneller als die Höchstrate folgt, wird zurückgehalten und nur der
+	 * letzte Wert nachgereicht. Ein Stopp, also die Kraft 0, wird nie
+	 * zurückgehalten: Sonst könnte eine Bewegung als beendet gelten und das
+	 * Programm sich beenden, während der Motor noch läuft. Muss unter
+	 * commandLock aufgerufen werden.
+	 */
+	private void publishCommands(int mask, double[] efforts) {
+		publishCommands(mask, efforts, false);
 	}
 
-	public double getRange(){
-		return range;
+	/**
+	 * @param immediate
+	 *            true, um die Höchstrate zu umgehen, z.B. beim Stoppen aller
+	 *            Motoren
+	 */
+	private void publishCommands(int mask, double[] efforts, boolean immediate) {
+		long now = System.nanoTime();
+		long interval = minCommandIntervalNanos;
+		int sendMask = 0;
+		for (MotorPort port : PORTS) {
+			if ((mask & port.mask()) == 0) {
+				continue;
+			}
+			int i = port.ordinal();
+			if ((reflexHoldMask & port.mask()) != 0) {
+				efforts[i] = 0;
+			}
+			double effort = efforts[i];
+			if ((pendingMask & port.mask()) != 0) {
+				// Der zurückgehaltene Wert wird nie gesendet
+				pendingMask &= ~port.mask();
+				commandsCoalesced++;
+			}
+			long sinceLast = now - publishedNanos[i];
+			if (effort == publishedEfforts[i]
+					&& sinceLast < COMMAND_REFRESH_NANOS) {
+				commandsSuppressed++;
+			} else if (!immediate && effort != 0 && sinceLast < interval) {
+				pendingEfforts[i] = effort;
+				pendingMask |= port.mask();
+			} else {
+				sendMask |= port.mask();
+			}
+		}
+		sendCommands(sendMask, efforts, now);
+		scheduleFlush(now, interval);
 	}
-	
+
 	/**
-	 * Liefert die Helligkeit des Lichtsensors.
+	 * Veröffentlicht die zurückgehaltenen Kräfte, deren Mindestabstand
+	 * abgelaufen ist. Muss unter commandLock aufgerufen werden.
+	 */
+	private void flushPendingCommands() {
+		if (commandMessages == null) {
+			return;
+		}
+		long now = System.nanoTime();
+		long interval = minCommandIntervalNanos;
+		int due = 0;
+		for (MotorPort port : PORTS) {
+			if ((pendingMask & port.mask()) != 0
+					&& now - publishedNanos[port.ordinal()] >= interval) {
+				due |= port.mask();
+			}
+		}
+		pendingMask &= ~due;
+		sendCommands(due, pendingEfforts, now);
+		scheduleFlush(now, interval);
+	}
+
+	/**
+	 * Startet den Takt, der zurückgehaltene Kräfte nachreicht, falls er nicht
+	 * schon läuft. Muss unter commandLock aufgerufen werden.
+	 */
+	private void scheduleFlush(long now, long interval) {
+		if (pendingMask == 0) {
+			return;
+		}
+		lastPendingNanos = now;
+		if (flushTick != null) {
+			return;
+		}
+		long period = Math.max(MIN_FLUSH_TICK_NANOS, interval
+				/ FLUSH_TICKS_PER_INTERVAL);
+		flushTick = MOTOR_SCHEDULER.scheduleAtFixedRate(flushTask, period,
+				period, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Veröffentlicht die Kräfte ohne weitere Prüfung und zeichnet sie
+	 * gegebenenfalls auf. Muss unter commandLock aufgerufen werden.
+	 */
+	private void sendCommands(int mask, double[] efforts, long now) {
+		if (mask == 0) {
+			return;
+		}
+		MessageRecorder r = recorder;
+		for (MotorPort port : PORTS) {
+			if ((mask & port.mask()) != 0) {
+				int i = port.ordinal();
+				publishedEfforts[i] = efforts[i];
+				publishedNanos[i] = now;
+				commandsPublished++;
+				if (r != null) {
+					r.recordCommand(port, now, efforts[i]);
+				}
+			}
+		}
+		commandMessages.publish(mask, efforts);
+	}
+
+	/**
+	 * Legt fest, wie oft je Motor höchstens ein Kommando veröffentlicht wird.
+	 * Schnellere Änderungen werden zusammengefasst, sodass nur der jeweils
+	 * letzte Wert gesendet wird.
 	 * 
-	 * @return Die Distanz in cm.
+	 * @param hz
+	 *            die Höchstrate oder 0 für keine Begrenzung; unveränderte
+	 *            Kräfte werden unabhängig davon nicht wiederholt
 	 */
-	public double getIntensity() {
-		// Sensor liefert 10Hz
-		// Thread.sleep(100);
-		return intensity;
+	public void setMaxCommandRate(double hz) {
+		if (hz < 0 || Double.isNaN(hz)) {
+			throw new IllegalArgumentException("Ungültige Rate: " + hz);
+		}
+		synchronized (commandLock) {
+			this.minCommandIntervalNanos = hz == 0 ? 0 : (long) (1e9 / hz);
+			// Der Takt richtet sich nach dem Mindestabstand
+			if (flushTick != null) {
+				flushTick.cancel(false);
+				flushTick = null;
+			}
+			scheduleFlush(System.nanoTime(), minCommandIntervalNanos);
+		}
 	}
 
 	/**
-	 * Methode für die Technik dahinter.
+	 * @return die Höchstrate in Hz oder 0, wenn nicht begrenzt wird
 	 */
-	@Override
-	public GraphName getDefaultNodeName() {
-		return GraphName.of("rosjava_tutorial_pubsub/talker");
+	public double getMaxCommandRate() {
+		long interval = minCommandIntervalNanos;
+		return interval == 0 ? 0 : 1e9 / interval;
 	}
-	
 
-	public double getColorIntensity() {
-		return colorIntensity;
+	/**
+	 * @return Anzahl der veröffentlichten Motorkommandos, gezählt je Motor
+	 */
+	public long getPublishedCommandCount() {
+		synchronized (commandLock) {
+			return commandsPublished;
+		}
 	}
 
-	public double getColorR() {
-		return colorR;
+	/**
+	 * @return Anzahl der Kommandos, die nicht veröffentlicht wurden, weil sich
+	 *         die Kraft nicht geändert hat
+	 */
+	public long getSuppressedCommandCount() {
+		synchronized (commandLock) {
+			return commandsSuppressed;
+		}
 	}
 
-	public double getColorG() {
-		return colorG;
+	/**
+	 * @return Anzahl der Kommandos, die wegen der Höchstrate zurückgehalten
+	 *         und durch ein neueres ersetzt wurden
+	 */
+	public long getCoalescedCommandCount() {
+		synchronized (commandLock) {
+			return commandsCoalesced;
+		}
 	}
 
-	public double getColorB() {
-		return colorB;
+	/**
+	 * Schließt die in supersededScratch vermerkten Bewegungen ab, deren Motoren
+	 * alle von neueren Kommandos übernommen wurden, damit wartende Threads
+	 * nicht bis zum Ablauf der ursprünglichen Dauer blockieren. Muss unter
+	 * commandLock aufgerufen werden.
+	 */
+	private void releaseSuperseded() {
+		for (int i = 0; i < supersededScratch.length; i++) {
+			MotorMotion previous = supersededScratch[i];
+			supersededScratch[i] = null;
+			if (previous == null || isActive(previous)) {
+				continue;
+			}
+			previous.cancelScheduledStop();
+			previous.complete(false);
+		}
+	}
+
+	private boolean isActive(MotorMotion motion) {
+		for (MotorMotion active : activeMotions) {
+			if (active == motion) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
-	 * Methode für die Technik dahinter.
+	 * Setzt die Kraft eines Motors ohne zeitliche Begrenzung. Dabei werden
+	 * keine Objekte erzeugt.
 	 */
-	@Override
-	public void onStart(ConnectedNode connectedNode) {
-		this.connectedNode = connectedNode;
-		publisherJointCommand = this.connectedNode.newPublisher(
-				"joint_command", nxt_msgs.JointCommand._TYPE);
-		subscriberContact = connectedNode.newSubscriber("touch_sensor",
-				nxt_msgs.Contact._TYPE);
-		subscriberRange = connectedNode.newSubscriber("ultrasonic_sensor",
-				nxt_msgs.Range._TYPE);
-		subscriberIntensity = connectedNode.newSubscriber("intensity_sensor",
-				nxt_msgs.Color._TYPE);
-		
-		subscriberColorIntensity = connectedNode.newSubscriber("color_sensor",
-				nxt_msgs.Color._TYPE);
-		
-		subscriberRange
-				.addMessageListener(new MessageListener<nxt_msgs.Range>() {
-					@Override
-					public void onNewMessage(Range message) {
-						range = message.getRange();
-					}
-				});
-		subscriberContact
-				.addMessageListener(new MessageListener<nxt_msgs.Contact>() {
-					@Override
-					public void onNewMessage(Contact message) {
-						contactStatus = message.getContact();
-					}
-				});
-		
-		subscriberIntensity.addMessageListener(new MessageListener<Color>() {
+	public void setEffort(MotorPort port, double effort) {
+		startMotion(0, effort, port.mask());
+	}
 
-			@Override
-			public void onNewMessage(Color message) {
-				intensity = message.getIntensity();
+	/**
+	 * Setzt die Kraft mehrerer Motoren mit einer einzigen Nachricht, sodass
+	 * der Treiber alle Motoren im selben Zyklus umstellt.
+	 * 
+	 * @param motorIDs
+	 *            die Motoren, jeweils "a", "b" oder "c"
+	 * @param efforts
+	 *            die Kraft je Motor, in derselben Reihenfolge
+	 */
+	public void setEfforts(String[] motorIDs, double[] efforts) {
+		MotorPort[] ports = new MotorPort[motorIDs.length];
+		for (int i = 0; i < motorIDs.length; i++) {
+			ports[i] = MotorPort.fromMotorID(motorIDs[i]);
+		}
+		setEfforts(ports, efforts);
+	}
+
+	/**
+	 * Setzt die Kraft mehrerer Motoren mit einer einzigen Nachricht. Dabei
+	 * werden keine Objekte erzeugt.
+	 * 
+	 * @param ports
+	 *            die Motoren
+	 * @param efforts
+	 *            die Kraft je Motor, in derselben Reihenfolge
+	 */
+	public void setEfforts(MotorPort[] ports, double[] efforts) {
+		if (ports.length != efforts.length) {
+			throw new IllegalArgumentException(
+					"Anzahl der Motoren und Kräfte stimmt nicht überein");
+		}
+		synchronized (commandLock) {
+			int mask = 0;
+			for (int j = 0; j < ports.length; j++) {
+				int i = ports[j].ordinal();
+				supersededScratch[i] = activeMotions[i];
+				activeMotions[i] = null;
+				effortScratch[i] = efforts[j];
+				mask |= ports[j].mask();
 			}
-		});
-		subscriberColorIntensity.addMessageListener(new MessageListener<Color>() {
+			releaseSuperseded();
+			publishCommands(mask, effortScratch);
+		}
+	}
 
-			@Override
-			public void onNewMessage(Color message) {
-				colorIntensity = message.getIntensity();
-				colorR = message.getR();
-				colorG = message.getG();
-				colorB = message.getB();
+	/**
+	 * Setzt die Kraft der Motoren der Maske mit einer einzigen Nachricht.
+	 * 
+	 * @param efforts
+	 *            die Kraft je Motor, Index {@link MotorPort#ordinal()}
+	 */
+	void setEfforts(int mask, double[] efforts) {
+		synchronized (commandLock) {
+			for (MotorPort port : PORTS) {
+				if ((mask & port.mask()) != 0) {
+					int i = port.ordinal();
+					supersededScratch[i] = activeMotions[i];
+					activeMotions[i] = null;
+					effortScratch[i] = efforts[i];
+				}
 			}
-		});
+			releaseSuperseded();
+			publishCommands(mask, effortScratch);
+		}
+	}
+
+	/**
+	 * Setzt die Kraft aller Motoren auf 0.
+	 */
+	public void allMotorStop() {
+		synchronized (commandLock) {
+			int mask = 0;
+			for (MotorPort port : PORTS) {
+				int i = port.ordinal();
+				supersededScratch[i] = activeMotions[i];
+				activeMotions[i] = null;
+				effortScratch[i] = 0;
+				mask |= port.mask();
+			}
+			releaseSuperseded();
+			publishCommands(mask, effortScratch, true);
+		}
+	}
+
+	/**
+	 * Meldet einen Reflex an, der ab sofort nach jeder Nachricht des
+	 * Ultraschall- und des Tastsensors direkt im Callback geprüft wird. Tritt
+	 * seine Bedingung ein, werden seine Motoren ohne Rücksicht auf die
+	 * Höchstrate gestoppt und laufende Bewegungen auf diesen Motoren
+	 * abgeschlossen. Gilt die Bedingung schon beim Anmelden, wird sofort
+	 * gestoppt.
+	 * 
+	 * @throws IllegalStateException
+	 *             wenn der Reflex bereits angemeldet ist
+	 */
+	public void addReflex(ReflexRule rule) {
+		if (!rule.register()) {
+			throw new IllegalStateException("Der Reflex ist bereits angemeldet: "
+					+ rule);
+		}
+		synchronized (commandLock) {
+			ReflexRule[] current = reflexes;
+			ReflexRule[] next = Arrays.copyOf(current, current.length + 1);
+			next[current.length] = rule;
+			reflexes = next;
+		}
+		evaluateReflexes();
+	}
+
+	/**
+	 * Meldet einen Reflex ab. Hält er gerade Motoren auf 0, nehmen sie wieder
+	 * neue Kommandos an.
+	 * 
+	 * @return true, wenn der Reflex angemeldet war
+	 */
+	public boolean removeReflex(ReflexRule rule) {
+		synchronized (commandLock) {
+			ReflexRule[] current = reflexes;
+			for (int i = 0; i < current.length; i++) {
+				if (current[i] == rule) {
+					ReflexRule[] next = new ReflexRule[current.length - 1];
+					System.arraycopy(current, 0, next, 0, i);
+					System.arraycopy(current, i + 1, next, i, next.length - i);
+					reflexes = next;
+					rule.unregister();
+					updateReflexHoldMask();
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Prüft alle Reflexe mit den aktuellen Sensorwerten. Läuft im
+	 * Sensor-Callback und erzeugt keine Objekte.
+	 */
+	private void evaluateReflexes() {
+		ReflexRule[] rules = reflexes;
+		if (rules.length == 0) {
+			return;
+		}
+		SensorSnapshot current = snapshot.get();
+		for (ReflexRule rule : rules) {
+			boolean wasActive = rule.isActive();
+			if (rule.update(rule.isSatisfied(this, current))) {
+				triggerReflex(rule);
+			} else if (wasActive && !rule.isActive() && rule.isHolding()) {
+				synchronized (commandLock) {
+					updateReflexHoldMask();
+				}
+			}
+		}
+	}
+
+	private void triggerReflex(ReflexRule rule) {
+		int mask = rule.getPortMask();
+		synchronized (commandLock) {
+			for (MotorPort port : PORTS) {
+				if ((mask & port.mask()) != 0) {
+					int i = port.ordinal();
+					supersededScratch[i] = activeMotions[i];
+					activeMotions[i] = null;
+					effortScratch[i] = 0;
+				}
+			}
+			updateReflexHoldMask();
+			releaseSuperseded();
+			if (commandMessages != null) {
+				publishCommands(mask, effortScratch, true);
+			}
+		}
+	}
+
+	/**
+	 * Muss unter commandLock aufgerufen werden.
+	 */
+	private void updateReflexHoldMask() {
+		int mask = 0;
+		for (ReflexRule rule : reflexes) {
+			if (rule.isHolding() && rule.isActive()) {
+				mask |= rule.getPortMask();
+			}
+		}
+		reflexHoldMask = mask;
+	}
+
+	/**
+	 * Dreht einen Motor um den gegebenen Winkel und blockiert, bis der Winkel
+	 * erreicht ist.
+	 * 
+	 * @param motorID
+	 *            Entweder "a", "b" oder "c"
+	 * @return true, wenn der Winkel erreicht wurde, false bei
+	 *         Zeitüberschreitung oder einem neueren Kommando
+	 * @throws InterruptedException
+	 * @see #rotateMotorAsync(MotorPort, double, double, int)
+	 */
+	public boolean rotateMotor(String motorID, double degrees,
+			double maxEffort, int timeoutMillis) throws InterruptedException {
+		return rotateMotorAsync(MotorPort.fromMotorID(motorID), degrees,
+				maxEffort, timeoutMillis).get();
+	}
+
+	/**
+	 * Dreht einen Motor um den gegebenen Winkel und kehrt sofort zurück. Der
+	 * Motor wird bei jeder joint_state-Nachricht nachgeregelt und gestoppt,
+	 * sobald der Winkel innerhalb der Toleranz erreicht ist.
+	 * 
+	 * @param degrees
+	 *            der Winkel in Grad relativ zur aktuellen Position; negative
+	 *            Winkel drehen den Motor rückwärts
+	 * @param maxEffort
+	 *            die größte Kraft, mit der der Motor gefahren wird
+	 * @param timeoutMillis
+	 *            Wenn 0, wird ohne Zeitlimit geregelt. Sonst wird der Motor
+	 *            spätestens nach soviel Millisekunden gestoppt.
+	 * @return die Bewegung; ihr Ergebnis ist true, wenn der Winkel erreicht
+	 *         wurde
+	 * @throws IllegalStateException
+	 *             wenn vom Motor noch kein joint_state eingetroffen ist
+	 */
+	public MotorMotion rotateMotorAsync(MotorPort port, double degrees,
+			double maxEffort, int timeoutMillis) {
+		return startPositionMotion(port.mask(), Math.toRadians(degrees),
+				maxEffort, timeoutMillis);
+	}
+
+	/**
+	 * Fährt mit zwei Antriebsmotoren die gegebene Strecke geradeaus und
+	 * blockiert, bis sie zurückgelegt ist.
+	 * 
+	 * @return true, wenn die Strecke zurückgelegt wurde, false bei
+	 *         Zeitüberschreitung oder einem neueren Kommando
+	 * @throws InterruptedException
+	 * @see #driveDistanceAsync(MotorPort, MotorPort, double, double, int)
+	 */
+	public boolean driveDistance(String motor1, String motor2,
+			double meters, double maxEffort, int timeoutMillis)
+			throws InterruptedException {
+		return driveDistanceAsync(MotorPort.fromMotorID(motor1),
+				MotorPort.fromMotorID(motor2), meters, maxEffort,
+				timeoutMillis).get();
+	}
+
+	/**
+	 * Fährt mit zwei Antriebsmotoren die gegebene Strecke geradeaus und kehrt
+	 * sofort zurück. Beide Räder werden auf denselben Drehwinkel geregelt,
+	 * der sich aus {@link #getWheelRadius()} ergibt.
+	 * 
+	 * @param meters
+	 *            die Strecke in m; negative Strecken fahren rückwärts
+	 * @param maxEffort
+	 *            die größte Kraft, mit der die Motoren gefahren werden
+	 * @param timeoutMillis
+	 *            Wenn 0, wird ohne Zeitlimit geregelt. Sonst werden die
+	 *            Motoren spätestens nach soviel Millisekunden gestoppt.
+	 * @return die Bewegung; ihr Ergebnis ist true, wenn die Strecke
+	 *         zurückgelegt wurde
+	 * @throws IllegalStateException
+	 *             wenn von einem Motor noch kein joint_state eingetroffen ist
+	 */
+	public MotorMotion driveDistanceAsync(MotorPort port1, MotorPort port2,
+			double meters, double maxEffort, int timeoutMillis) {
+		return startPositionMotion(port1.mask() | port2.mask(), meters
+				/ wheelRadius, maxEffort, timeoutMillis);
+	}
+
+	/**
+	 * Startet eine Bewegung, die alle Ports der Maske um denselben Winkel
+	 * dreht.
+	 */
+	private MotorMotion startPositionMotion(int mask, double radians,
+			double maxEffort, int timeoutMillis) {
+		if (!(maxEffort > 0)) {
+			throw new IllegalArgumentException("Ungültige Kraft: " + maxEffort);
+		}
+		double[] targets = new double[PORTS.length];
+		for (MotorPort port : PORTS) {
+			if ((mask & port.mask()) != 0) {
+				JointStateSample state = jointStates.get(port.ordinal());
+				if (state.getStamp().getSequence() == 0) {
+					throw new IllegalStateException("Vom Motor " + port
+							+ " ist noch kein joint_state eingetroffen");
+				}
+				targets[port.ordinal()] = state.getPosition() + radians;
+			}
+		}
+		final MotorMotion motion = new MotorMotion(this, mask,
+				new PositionController(mask, targets, maxEffort,
+						positionControlSettings));
+		synchronized (commandLock) {
+			for (MotorPort port : PORTS) {
+				if ((mask & port.mask()) != 0) {
+					int i = port.ordinal();
+					supersededScratch[i] = activeMotions[i];
+					activeMotions[i] = motion;
+				}
+			}
+			releaseSuperseded();
+			// Ersten Schritt sofort regeln, statt auf die nächste
+			// Rückmeldung zu warten
+			stepPositionMotions();
+		}
+		if (timeoutMillis != 0 && !motion.isDone()) {
+			motion.setScheduledStop(MOTOR_SCHEDULER.schedule(new Runnable() {
+				@Override
+				public void run() {
+					finishMotion(motion);
+				}
+			}, timeoutMillis, TimeUnit.MILLISECONDS));
+		}
+		return motion;
+	}
+
+	/**
+	 * Regelt alle laufenden Bewegungen auf einen Zielwinkel nach und schließt
+	 * die ab, deren Motoren alle innerhalb der Toleranz stehen. Wird nach
+	 * jeder joint_state-Nachricht aufgerufen; muss unter commandLock laufen
+	 * und erzeugt keine Objekte.
+	 */
+	private void stepPositionMotions() {
+		int mask = 0;
+		int stopped = 0;
+		for (MotorPort port : PORTS) {
+			MotorMotion motion = activeMotions[port.ordinal()];
+			if (motion != null && motion.getController() != null
+					&& motion.getController().step(port,
+							jointStates.get(port.ordinal()), effortScratch)) {
+				mask |= port.mask();
+			}
+		}
+		for (MotorPort port : PORTS) {
+			MotorMotion motion = activeMotions[port.ordinal()];
+			if (motion == null || motion.getController() == null
+					|| !motion.getController().isWithinTolerance()) {
+				continue;
+			}
+			motion.getController().markReached();
+			for (MotorPort owned : PORTS) {
+				int i = owned.ordinal();
+				if (activeMotions[i] == motion) {
+					activeMotions[i] = null;
+					effortScratch[i] = 0;
+					stopped |= owned.mask();
+					reachedScratch[i] = motion;
+				}
+			}
+			motion.cancelScheduledStop();
+		}
+		mask &= ~stopped;
+		if (mask != 0) {
+			publishCommands(mask, effortScratch);
+		}
+		if (stopped != 0) {
+			publishCommands(stopped, effortScratch, true);
+		}
+		// Erst nach dem Stopp abschließen, damit wartende Threads nicht
+		// zurückkehren, solange der Motor noch läuft
+		for (int i = 0; i < reachedScratch.length; i++) {
+			MotorMotion reached = reachedScratch[i];
+			reachedScratch[i] = null;
+			if (reached != null) {
+				reached.complete(true);
+			}
+		}
+	}
+
+	/**
+	 * Legt fest, wie Bewegungen auf einen Zielwinkel geregelt werden. Gilt für
+	 * alle danach gestarteten Bewegungen.
+	 */
+	public void setPositionControlSettings(PositionControlSettings settings) {
+		if (settings == null) {
+			throw new NullPointerException("settings");
+		}
+		this.positionControlSettings = settings;
+	}
+
+	public PositionControlSettings getPositionControlSettings() {
+		return positionControlSettings;
+	}
+
+	/**
+	 * Legt den Radius der Antriebsräder fest, aus dem
+	 * {@link #driveDistanceAsync(MotorPort, MotorPort, double, double, int)}
+	 * den Drehwinkel berechnet.
+	 * 
+	 * @param meters
+	 *            der Radius in m, voreingestellt sind 0,028 m
+	 */
+	public void setWheelRadius(double meters) {
+		if (!(meters > 0)) {
+			throw new IllegalArgumentException("Ungültiger Radius: " + meters);
+		}
+		this.wheelRadius = meters;
+	}
+
+	public double getWheelRadius() {
+		return wheelRadius;
+	}
+
+	/**
+	 * Liefert alle Sensorwerte als zusammengehörigen Schnappschuss. Der Aufruf
+	 * ist lockfrei und erzeugt keine Objekte.
+	 * 
+	 * @return der zuletzt veröffentlichte Schnappschuss
+	 */
+	public SensorSnapshot snapshot() {
+		return snapshot.get();
+	}
+
+	public boolean getContact(){
+		return snapshot.get().getContact();
+	}
+
+	/**
+	 * Liefert den Zustand des Kontaktsensors, sofern er nicht älter ist als
+	 * angegeben.
+	 * 
+	 * @param maxAgeMillis
+	 *            das erlaubte Alter in ms
+	 * @throws StaleSensorDataException
+	 *             wenn der Wert älter ist
+	 */
+	public boolean getContact(long maxAgeMillis) {
+		return snapshot.get().checkFresh(Sensor.CONTACT, maxAgeMillis)
+				.getContact();
+	}
+
+	public double getRange(){
+		return snapshot.get().getRange();
+	}
+
+	/**
+	 * Liefert die Distanz des Ultraschallsensors, sofern sie nicht älter ist
+	 * als angegeben.
+	 * 
+	 * @param maxAgeMillis
+	 *            das erlaubte Alter in ms
+	 * @throws StaleSensorDataException
+	 *             wenn der Wert älter ist
+	 */
+	public double getRange(long maxAgeMillis) {
+		return snapshot.get().checkFresh(Sensor.RANGE, maxAgeMillis)
+				.getRange();
+	}
+
+	/**
+	 * Liefert den Verlauf der letzten {@link #DEFAULT_HISTORY_CAPACITY} Werte
+	 * eines Sensors, z.B. um die Distanz des Ultraschallsensors per
+	 * {@link SensorHistory#getMedian(int)} zu glätten. Gespeichert werden beim
+	 * Tastsensor 1 und 0, beim Farbsensor die Helligkeit, beim Gyro die
+	 * Drehrate und bei der IMU die fortlaufende Ausrichtung.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             für den Beschleunigungssensor, für den kein Verlauf geführt
+	 *             wird
+	 */
+	public SensorHistory getHistory(Sensor sensor) {
+		SensorHistory history = histories[sensor.ordinal()];
+		if (history == null) {
+			throw new IllegalArgumentException("Für " + sensor
+					+ " wird kein Verlauf geführt");
+		}
+		return history;
+	}
+
+	/**
+	 * Setzt den Recorder, der ab sofort alle empfangenen Sensornachrichten und
+	 * veröffentlichten Motorkommandos aufzeichnet.
+	 * 
+	 * @param pRecorder
+	 *            der Recorder oder null, um die Aufzeichnung zu beenden; ein
+	 *            vorheriger Recorder wird nicht geschlossen
+	 */
+	public void setRecorder(MessageRecorder pRecorder) {
+		this.recorder = pRecorder;
+	}
+
+	public MessageRecorder getRecorder() {
+		return recorder;
+	}
+
+	/**
+	 * Liefert Empfangszeit und Sequenznummer der letzten Nachricht eines
+	 * Sensors.
+	 */
+	public SensorStamp getStamp(Sensor sensor) {
+		return snapshot.get().getStamp(sensor);
+	}
+	
+	/**
+	 * Liefert die Helligkeit des Lichtsensors.
+	 * 
+	 * @return Die Distanz in cm.
+	 */
+	public double getIntensity() {
+		// Sensor liefert 10Hz
+		// Thread.sleep(100);
+		return snapshot.get().getIntensity();
+	}
+
+	/**
+	 * Liefert die Helligkeit des Lichtsensors, sofern sie nicht älter ist als
+	 * angegeben.
+	 * 
+	 * @param maxAgeMillis
+	 *            das erlaubte Alter in ms
+	 * @throws StaleSensorDataException
+	 *             wenn der Wert älter ist
+	 */
+	public double getIntensity(long maxAgeMillis) {
+		return snapshot.get().checkFresh(Sensor.INTENSITY, maxAgeMillis)
+				.getIntensity();
+	}
+
+	/**
+	 * Blockiert, bis die gegebene Bedingung erfüllt ist. Die Bedingung wird nur
+	 * geprüft, wenn eine neue Sensornachricht eingetroffen ist, sodass zwischen
+	 * zwei Nachrichten keine Rechenzeit verbraucht wird.
+	 * 
+	 * @param condition
+	 *            die Bedingung, auf die gewartet wird
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn die Bedingung erfüllt ist, false bei Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean awaitCondition(SensorCondition condition, long timeoutMillis)
+			throws InterruptedException {
+		long deadline = System.nanoTime()
+				+ TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		sensorLock.lockInterruptibly();
+		try {
+			while (!condition.isSatisfied(this)) {
+				if (timeoutMillis == 0) {
+					sensorUpdated.await();
+				} else {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						return false;
+					}
+					sensorUpdated.awaitNanos(remaining);
+				}
+			}
+			return true;
+		} finally {
+			sensorLock.unlock();
+		}
+	}
+
+	/**
+	 * Blockiert, bis der Ultraschallsensor eine Distanz kleiner als die
+	 * gegebene meldet.
+	 * 
+	 * @param threshold
+	 *            die Distanz in m
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn die Distanz unterschritten wurde, false bei
+	 *         Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean awaitRangeBelow(final double threshold, long timeoutMillis)
+			throws InterruptedException {
+		return awaitCondition(new SensorCondition() {
+			@Override
+			public boolean isSatisfied(Talker talker) {
+				return talker.getRange() < threshold;
+			}
+		}, timeoutMillis);
+	}
+
+	/**
+	 * Blockiert, bis der Median der letzten Messungen des Ultraschallsensors
+	 * kleiner als die gegebene Distanz ist. Einzelne Fehlmessungen lösen so
+	 * nicht aus.
+	 * 
+	 * @param threshold
+	 *            die Distanz in m
+	 * @param samples
+	 *            Anzahl der Messungen, über die der Median gebildet wird
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn die Distanz unterschritten wurde, false bei
+	 *         Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean awaitRangeBelow(final double threshold, final int samples,
+			long timeoutMillis) throws InterruptedException {
+		final SensorHistory history = getHistory(Sensor.RANGE);
+		return awaitCondition(new SensorCondition() {
+			@Override
+			public boolean isSatisfied(Talker talker) {
+				return history.size() >= samples
+						&& history.getMedian(samples) < threshold;
+			}
+		}, timeoutMillis);
+	}
+
+	/**
+	 * Liefert die Drehrate des Gyrosensors um die Hochachse.
+	 * 
+	 * @return die Drehrate in rad/s; positiv bei einer Linksdrehung
+	 */
+	public double getAngularVelocity() {
+		return snapshot.get().getAngularVelocity();
+	}
+
+	/**
+	 * Liefert die Drehrate des Gyrosensors, sofern sie nicht älter ist als
+	 * angegeben.
+	 * 
+	 * @param maxAgeMillis
+	 *            das erlaubte Alter in ms
+	 * @throws StaleSensorDataException
+	 *             wenn der Wert älter ist
+	 */
+	public double getAngularVelocity(long maxAgeMillis) {
+		return snapshot.get().checkFresh(Sensor.GYRO, maxAgeMillis)
+				.getAngularVelocity();
+	}
+
+	/**
+	 * Liefert die Ausrichtung des Roboters, die der Treiber aus der Drehrate
+	 * aufintegriert.
+	 * 
+	 * @return die Ausrichtung in rad, stetig über mehrere Umdrehungen
+	 */
+	public double getHeading() {
+		return snapshot.get().getHeading();
+	}
+
+	/**
+	 * Liefert die Ausrichtung des Roboters, sofern sie nicht älter ist als
+	 * angegeben.
+	 * 
+	 * @param maxAgeMillis
+	 *            das erlaubte Alter in ms
+	 * @throws StaleSensorDataException
+	 *             wenn der Wert älter ist
+	 */
+	public double getHeading(long maxAgeMillis) {
+		return snapshot.get().checkFresh(Sensor.IMU, maxAgeMillis)
+				.getHeading();
+	}
+
+	public double getAccelerationX() {
+		return snapshot.get().getAccelerationX();
+	}
+
+	public double getAccelerationY() {
+		return snapshot.get().getAccelerationY();
+	}
+
+	public double getAccelerationZ() {
+		return snapshot.get().getAccelerationZ();
+	}
+
+	/**
+	 * Blockiert, bis sich der Roboter laut IMU um den gegebenen Winkel
+	 * gedreht hat, egal in welche Richtung. So lassen sich Drehungen anhand
+	 * der tatsächlichen Drehrate beenden statt nach einer festen Zeit.
+	 * 
+	 * @param radians
+	 *            der Winkel in rad
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn der Winkel erreicht wurde, false bei
+	 *         Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean awaitRotation(final double radians, long timeoutMillis)
+			throws InterruptedException {
+		final double start = getHeading();
+		final double angle = Math.abs(radians);
+		return awaitCondition(new SensorCondition() {
+			@Override
+			public boolean isSatisfied(Talker talker) {
+				return Math.abs(talker.getHeading() - start) >= angle;
+			}
+		}, timeoutMillis);
+	}
+
+	/**
+	 * Blockiert, bis sich der Zustand des Kontaktsensors ändert.
+	 * 
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange gewartet. Sonst höchstens soviele
+	 *            Millisekunden wie angegeben.
+	 * @return true, wenn sich der Zustand geändert hat, false bei
+	 *         Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean awaitContactChange(long timeoutMillis)
+			throws InterruptedException {
+		final boolean initial = getContact();
+		return awaitCondition(new SensorCondition() {
+			@Override
+			public boolean isSatisfied(Talker talker) {
+				return talker.getContact() != initial;
+			}
+		}, timeoutMillis);
+	}
+
+	/**
+	 * Liefert den zuletzt vom Treiber gemeldeten Zustand eines Motors. Der
+	 * Aufruf ist lockfrei und erzeugt keine Objekte.
+	 * 
+	 * @return der Zustand; Sequenznummer 0, solange noch keine Nachricht
+	 *         eingetroffen ist
+	 */
+	public JointStateSample getJointState(MotorPort port) {
+		return jointStates.get(port.ordinal());
+	}
+
+	/**
+	 * Liefert den Drehwinkel eines Motors in rad.
+	 */
+	public double getJointPosition(MotorPort port) {
+		return jointStates.get(port.ordinal()).getPosition();
+	}
+
+	/**
+	 * Liefert die Drehgeschwindigkeit eines Motors in rad/s.
+	 */
+	public double getJointVelocity(MotorPort port) {
+		return jointStates.get(port.ordinal()).getVelocity();
+	}
+
+	/**
+	 * Liefert den Zustand eines Motors, sofern er nicht älter ist als
+	 * angegeben.
+	 * 
+	 * @param maxAgeMillis
+	 *            das erlaubte Alter in ms
+	 * @throws StaleSensorDataException
+	 *             wenn der Zustand älter ist
+	 */
+	public JointStateSample getJointState(MotorPort port, long maxAgeMillis) {
+		JointStateSample state = jointStates.get(port.ordinal());
+		long age = state.getStamp().getAgeMillis();
+		if (age > maxAgeMillis) {
+			throw new StaleSensorDataException(port, age, maxAgeMillis);
+		}
+		return state;
+	}
+
+	/**
+	 * Liefert den Klassifikator, mit dem die Werte des Farbsensors den
+	 * Standardfarben zugeordnet werden. Über ihn lassen sich Referenzwerte und
+	 * Toleranz einstellen; Änderungen gelten ab der nächsten Nachricht des
+	 * Farbsensors.
+	 */
+	public ColorClassifier getColorClassifier() {
+		return colorClassifier;
+	}
+
+	/**
+	 * Lernt den Referenzwert einer Standardfarbe aus den nächsten Nachrichten
+	 * des Farbsensors. Währenddessen muss die Farbe vor den Sensor gehalten
+	 * werden.
+	 * 
+	 * @param farbe
+	 *            die Farbe, die vor dem Sensor liegt
+	 * @param samples
+	 *            die Anzahl der Nachrichten, aus denen gemittelt wird
+	 * @param timeoutMillis
+	 *            Wenn 0, wird unendlich lange auf jede Nachricht gewartet.
+	 *            Sonst höchstens soviele Millisekunden je Nachricht.
+	 * @return true, wenn der Referenzwert übernommen wurde, false bei
+	 *         Zeitüberschreitung
+	 * @throws InterruptedException
+	 */
+	public boolean calibrateColor(NxtJavaHandler.Farbe farbe, int samples,
+			long timeoutMillis) throws InterruptedException {
+		if (farbe == NxtJavaHandler.Farbe.UNGUELTIG) {
+			throw new IllegalArgumentException(
+					"UNGUELTIG kann nicht gelernt werden");
+		}
+		if (samples <= 0) {
+			throw new IllegalArgumentException("Ungültige Anzahl: " + samples);
+		}
+		ColorClassifier.Calibration calibration = new ColorClassifier.Calibration();
+		long lastSequence = getStamp(Sensor.COLOR).getSequence();
+		while (calibration.getSampleCount(farbe) < samples) {
+			final long previous = lastSequence;
+			boolean received = awaitCondition(new SensorCondition() {
+				@Override
+				public boolean isSatisfied(Talker talker) {
+					return talker.getStamp(Sensor.COLOR).getSequence() != previous;
+				}
+			}, timeoutMillis);
+			if (!received) {
+				return false;
+			}
+			SensorSnapshot current = snapshot.get();
+			lastSequence = current.getStamp(Sensor.COLOR).getSequence();
+			calibration.addSample(farbe, current);
+		}
+		calibration.applyTo(colorClassifier);
+		return true;
+	}
+
+	/**
+	 * Veröffentlicht den neuen Wert des Ultraschallsensors. Die Subscriber
+	 * laufen in eigenen Threads, daher wird per compareAndSet veröffentlicht,
+	 * damit gleichzeitige Nachrichten anderer Sensoren nicht verloren gehen.
+	 */
+	void updateRange(double value, long headerStampNanos) {
+		long now = System.nanoTime();
+		long wallNow = System.currentTimeMillis() * 1000000L;
+		SensorSnapshot current;
+		do {
+			current = snapshot.get();
+		} while (!snapshot.compareAndSet(current,
+				current.withRange(value, now, wallNow, headerStampNanos)));
+		histories[Sensor.RANGE.ordinal()].add(value, now);
+		record(Sensor.RANGE, now, headerStampNanos, value, 0, 0, 0);
+		evaluateReflexes();
+		signalSensorUpdate();
+	}
+
+	void updateContact(boolean value, long headerStampNanos) {
+		long now = System.nanoTime();
+		long wallNow = System.currentTimeMillis() * 1000000L;
+		SensorSnapshot current;
+		do {
+			current = snapshot.get();
+		} while (!snapshot.compareAndSet(current,
+				current.withContact(value, now, wallNow, headerStampNanos)));
+		histories[Sensor.CONTACT.ordinal()].add(value ? 1 : 0, now);
+		record(Sensor.CONTACT, now, headerStampNanos, value ? 1 : 0, 0, 0, 0);
+		evaluateReflexes();
+		signalSensorUpdate();
+	}
+
+	void updateIntensity(double value, long headerStampNanos) {
+		long now = System.nanoTime();
+		long wallNow = System.currentTimeMillis() * 1000000L;
+		SensorSnapshot current;
+		do {
+			current = snapshot.get();
+		} while (!snapshot.compareAndSet(current,
+				current.withIntensity(value, now, wallNow, headerStampNanos)));
+		histories[Sensor.INTENSITY.ordinal()].add(value, now);
+		record(Sensor.INTENSITY, now, headerStampNanos, value, 0, 0, 0);
+		signalSensorUpdate();
+	}
+
+	void updateColor(double intensity, double r, double g, double b,
+			long headerStampNanos) {
+		// Einmal je Nachricht einordnen, statt bei jedem Lesen
+		NxtJavaHandler.Farbe color = colorClassifier.classify(r, g, b,
+				intensity);
+		long now = System.nanoTime();
+		long wallNow = System.currentTimeMillis() * 1000000L;
+		SensorSnapshot current;
+		do {
+			current = snapshot.get();
+		} while (!snapshot.compareAndSet(current, current.withColor(intensity,
+				r, g, b, color, now, wallNow, headerStampNanos)));
+		histories[Sensor.COLOR.ordinal()].add(intensity, now);
+		record(Sensor.COLOR, now, headerStampNanos, intensity, r, g, b);
+		signalSensorUpdate();
+	}
+
+	void updateGyro(double rate, long headerStampNanos) {
+		long now = System.nanoTime();
+		long wallNow = System.currentTimeMillis() * 1000000L;
+		SensorSnapshot current;
+		do {
+			current = snapshot.get();
+		} while (!snapshot.compareAndSet(current,
+				current.withGyro(rate, now, wallNow, headerStampNanos)));
+		histories[Sensor.GYRO.ordinal()].add(rate, now);
+		record(Sensor.GYRO, now, headerStampNanos, rate, 0, 0, 0);
+		signalSensorUpdate();
+	}
+
+	void updateImu(double yaw, double rate, long headerStampNanos) {
+		long now = System.nanoTime();
+		long wallNow = System.currentTimeMillis() * 1000000L;
+		SensorSnapshot current;
+		SensorSnapshot next;
+		do {
+			current = snapshot.get();
+			next = current.withImu(yaw, rate, now, wallNow, headerStampNanos);
+		} while (!snapshot.compareAndSet(current, next));
+		// Die fortlaufende Ausrichtung, damit Mittelwerte am Sprung von
+		// +pi nach -pi nicht verfälscht werden
+		histories[Sensor.IMU.ordinal()].add(next.getHeading(), now);
+		record(Sensor.IMU, now, headerStampNanos, yaw, rate, 0, 0);
+		signalSensorUpdate();
+	}
+
+	void updateAcceleration(double x, double y, double z,
+			long headerStampNanos) {
+		long now = System.nanoTime();
+		long wallNow = System.currentTimeMillis() * 1000000L;
+		SensorSnapshot current;
+		do {
+			current = snapshot.get();
+		} while (!snapshot.compareAndSet(current, current.withAcceleration(x,
+				y, z, now, wallNow, headerStampNanos)));
+		record(Sensor.ACCELEROMETER, now, headerStampNanos, x, y, z, 0);
+		signalSensorUpdate();
+	}
+
+	private void record(Sensor sensor, long now, long headerStampNanos,
+			double v0, double v1, double v2, double v3) {
+		MessageRecorder r = recorder;
+		if (r != null) {
+			r.recordSensor(sensor, now, headerStampNanos, v0, v1, v2, v3);
+		}
+	}
+
+	/**
+	 * Liefert die Drehung um die Hochachse aus einem Quaternion in rad.
+	 */
+	private static double yaw(Quaternion q) {
+		return Math.atan2(2 * (q.getW() * q.getZ() + q.getX() * q.getY()),
+				1 - 2 * (q.getY() * q.getY() + q.getZ() * q.getZ()));
+	}
+
+	/**
+	 * Übernimmt die Motorzustände einer joint_state-Nachricht. Gelenke, die
+	 * zu keinem Motor gehören, werden übergangen; fehlende Geschwindigkeiten
+	 * und Stärken werden als Double.NaN geführt.
+	 */
+	void updateJointStates(List<String> names, double[] positions,
+			double[] velocities, double[] efforts, long headerStampNanos) {
+		long now = System.nanoTime();
+		long wallNow = System.currentTimeMillis() * 1000000L;
+		boolean updated = false;
+		for (int i = 0; i < names.size() && i < positions.length; i++) {
+			MotorPort port = MotorPort.fromJointName(names.get(i));
+			if (port == null) {
+				continue;
+			}
+			double velocity = i < velocities.length ? velocities[i]
+					: Double.NaN;
+			double effort = i < efforts.length ? efforts[i] : Double.NaN;
+			JointStateSample current;
+			do {
+				current = jointStates.get(port.ordinal());
+			} while (!jointStates.compareAndSet(port.ordinal(), current,
+					current.next(positions[i], velocity, effort, now, wallNow,
+							headerStampNanos)));
+			MessageRecorder r = recorder;
+			if (r != null) {
+				r.recordJointState(port, now, headerStampNanos, positions[i],
+						velocity, effort);
+			}
+			updated = true;
+		}
+		if (updated) {
+			synchronized (commandLock) {
+				if (commandMessages != null) {
+					stepPositionMotions();
+				}
+			}
+			signalSensorUpdate();
+		}
+	}
+
+	private static AtomicReferenceArray<JointStateSample> newJointStates() {
+		AtomicReferenceArray<JointStateSample> states = new AtomicReferenceArray<JointStateSample>(
+				PORTS.length);
+		for (int i = 0; i < PORTS.length; i++) {
+			states.set(i, JointStateSample.NONE);
+		}
+		return states;
+	}
+
+	private static double[] newNaNs(int length) {
+		double[] values = new double[length];
+		Arrays.fill(values, Double.NaN);
+		return values;
+	}
+
+	private static SensorHistory[] newHistories() {
+		SensorHistory[] histories = new SensorHistory[Sensor.values().length];
+		for (Sensor sensor : Sensor.values()) {
+			if (sensor != Sensor.ACCELEROMETER) {
+				histories[sensor.ordinal()] = new SensorHistory(
+						DEFAULT_HISTORY_CAPACITY);
+			}
+		}
+		return histories;
+	}
+
+	/**
+	 * Liefert den Zeitstempel aus dem Header einer Nachricht in ns.
+	 */
+	private static long stampNanos(Header header) {
+		if (header == null || header.getStamp() == null) {
+			return 0;
+		}
+		return header.getStamp().totalNsecs();
+	}
+
+	/**
+	 * Legt fest, wohin die Motorkommandos veröffentlicht werden, und erzeugt
+	 * die wiederverwendeten Nachrichten. Wird von onStart mit den
+	 * rosjava-Publishern aufgerufen, von den Benchmarks mit Platzhaltern.
+	 */
+	void attachCommandSinks(MessageSink<nxt_msgs.JointCommand> single,
+			MessageSink<sensor_msgs.JointState> batch) {
+		CommandMessages messages = new CommandMessages(single, batch);
+		synchronized (commandLock) {
+			commandMessages = messages;
+		}
+	}
+
+	/**
+	 * Bereitet den Talker für den Betrieb ohne ROS-Master vor, z.B. für
+	 * {@link LogReplay}: Motorkommandos werden erzeugt und verworfen, und
+	 * {@link #waitForNode()} wartet nicht auf onStart, sondern nur auf die
+	 * erste Sensornachricht.
+	 * 
+	 * @throws IllegalStateException
+	 *             wenn der Talker bereits mit einem Master verbunden ist
+	 */
+	void startOffline() {
+		if (connectedNode != null) {
+			throw new IllegalStateException("Der Talker ist verbunden");
+		}
+		MessageFactory factory = NodeConfiguration.newPrivate()
+				.getTopicMessageFactory();
+		attachCommandSinks(new DiscardingSink<nxt_msgs.JointCommand>(factory,
+				nxt_msgs.JointCommand._TYPE),
+				new DiscardingSink<sensor_msgs.JointState>(factory,
+						sensor_msgs.JointState._TYPE));
+		started.countDown();
+	}
+
+	/**
+	 * Weckt alle Threads, die in {@link #awaitCondition(SensorCondition, long)}
+	 * warten. Wird nach jeder Sensornachricht aufgerufen.
+	 */
+	private void signalSensorUpdate() {
+		sensorLock.lock();
+		try {
+			sensorUpdated.signalAll();
+		} finally {
+			sensorLock.unlock();
+		}
+	}
+
+	/**
+	 * Methode für die Technik dahinter.
+	 */
+	@Override
+	public GraphName getDefaultNodeName() {
+		return topics.getNodeName();
+	}
+	
+
+	public double getColorIntensity() {
+		return snapshot.get().getColorIntensity();
+	}
+
+	public double getColorR() {
+		return snapshot.get().getColorR();
+	}
+
+	public double getColorG() {
+		return snapshot.get().getColorG();
+	}
+
+	public double getColorB() {
+		return snapshot.get().getColorB();
+	}
+
+	/**
+	 * Liefert die Standardfarbe, der die letzte Nachricht des Farbsensors beim
+	 * Empfang zugeordnet wurde.
+	 */
+	public NxtJavaHandler.Farbe getColor() {
+		return snapshot.get().getColor();
+	}
+
+	/**
+	 * Methode für die Technik dahinter.
+	 */
+	@Override
+	public void onStart(ConnectedNode connectedNode) {
+		this.connectedNode = connectedNode;
+		publisherJointCommand = this.connectedNode.newPublisher(
+				topics.resolve(TopicMap.Topic.JOINT_COMMAND),
+				nxt_msgs.JointCommand._TYPE);
+		publisherJointCommands = this.connectedNode.newPublisher(
+				topics.resolve(TopicMap.Topic.JOINT_COMMANDS),
+				sensor_msgs.JointState._TYPE);
+		attachCommandSinks(new PublisherSink<nxt_msgs.JointCommand>(
+				publisherJointCommand),
+				new PublisherSink<sensor_msgs.JointState>(
+						publisherJointCommands));
+		subscriberContact = connectedNode.newSubscriber(
+				topics.resolve(TopicMap.Topic.TOUCH),
+				nxt_msgs.Contact._TYPE);
+		subscriberRange = connectedNode.newSubscriber(
+				topics.resolve(TopicMap.Topic.ULTRASONIC),
+				nxt_msgs.Range._TYPE);
+		subscriberIntensity = connectedNode.newSubscriber(
+				topics.resolve(TopicMap.Topic.INTENSITY),
+				nxt_msgs.Color._TYPE);
+		
+		subscriberColorIntensity = connectedNode.newSubscriber(
+				topics.resolve(TopicMap.Topic.COLOR),
+				nxt_msgs.Color._TYPE);
+		
+		subscriberRange.addMessageListener(rangeListener);
+		subscriberContact.addMessageListener(contactListener);
+		subscriberIntensity.addMessageListener(intensityListener);
+		subscriberColorIntensity.addMessageListener(colorListener);
+
+		subscriberJointState = connectedNode.newSubscriber(
+				topics.resolve(TopicMap.Topic.JOINT_STATE),
+				sensor_msgs.JointState._TYPE);
+		subscriberJointState.addMessageListener(jointStateListener);
+
+		// Der Treiber veröffentlicht den Gyrosensor unter seinem Namen und
+		// zusätzlich als Imu unter Name + "_imu", siehe TopicMap
+		subscriberGyro = connectedNode.newSubscriber(
+				topics.resolve(TopicMap.Topic.GYRO),
+				nxt_msgs.Gyro._TYPE);
+		subscriberGyro.addMessageListener(gyroListener);
+		subscriberImu = connectedNode.newSubscriber(
+				topics.resolve(TopicMap.Topic.IMU),
+				sensor_msgs.Imu._TYPE);
+		subscriberImu.addMessageListener(imuListener);
+		subscriberAccelerometer = connectedNode.newSubscriber(
+				topics.resolve(TopicMap.Topic.ACCELEROMETER),
+				nxt_msgs.Accelerometer._TYPE);
+		subscriberAccelerometer.addMessageListener(accelerometerListener);
+
+		started.countDown();
 	}
 }
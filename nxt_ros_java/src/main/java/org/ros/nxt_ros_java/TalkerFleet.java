@@ -0,0 +1,126 @@
+package org.ros.nxt_ros_java;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.ros.internal.loader.CommandLineLoader;
+import org.ros.node.DefaultNodeMainExecutor;
+import org.ros.node.NodeConfiguration;
+import org.ros.node.NodeMainExecutor;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Betreibt mehrere Roboter in einer JVM. Alle {@link Talker} teilen sich einen
+ * NodeMainExecutor und damit dessen Thread-Pool; jeder Roboter bekommt einen
+ * eigenen Namensraum für Node und Topics (siehe {@link TopicMap}).
+ *
+ * Auf der Treiberseite wird dazu je Roboter ein nxt_ros-Knoten im passenden
+ * Namensraum gestartet, z.B. per ns-Attribut in der Launch-Datei.
+ */
+public class TalkerFleet {
+
+	private final NodeConfiguration baseConfiguration;
+	private final NodeMainExecutor executor;
+	private final List<Talker> talkers = new ArrayList<Talker>();
+
+	// Wird erst beim ersten Zugriff angelegt, da das Laden der Klasse den
+	// Thread-Pool startet
+	private static final class SharedExecutorHolder {
+		static final NodeMainExecutor INSTANCE = DefaultNodeMainExecutor
+				.newDefault();
+	}
+
+	/**
+	 * Liefert den NodeMainExecutor, den sich alle einzeln gestarteten
+	 * {@link NxtJavaHandler} und Roboter einer JVM teilen. Er wird beim
+	 * ersten Aufruf angelegt und nie beendet; Talker werden über
+	 * {@link NodeMainExecutor#shutdownNodeMain} einzeln gestoppt.
+	 */
+	public static NodeMainExecutor sharedExecutor() {
+		return SharedExecutorHolder.INSTANCE;
+	}
+
+	/**
+	 * @param argv
+	 *            Argumente für die Verbindung zum Master, wie bei
+	 *            {@link NxtJavaHandler#NxtJavaHandler(String[])}
+	 */
+	public TalkerFleet(String[] argv) {
+		CommandLineLoader loader = new CommandLineLoader(
+				Lists.newArrayList(argv));
+		this.baseConfiguration = loader.build();
+		this.executor = DefaultNodeMainExecutor.newDefault();
+	}
+
+	/**
+	 * Startet einen Talker für den Roboter im gegebenen Namensraum.
+	 *
+	 * @param namespace
+	 *            z.B. "robot1"; die Topics heißen dann "robot1/touch_sensor"
+	 *            usw.
+	 */
+	public Talker addRobot(String namespace) {
+		return addRobot(TopicMap.DEFAULT.withNamespace(namespace));
+	}
+
+	/**
+	 * Startet einen Talker mit eigener Zuordnung der Topics.
+	 *
+	 * @throws IllegalArgumentException
+	 *             wenn bereits ein Talker mit diesem Node-Namen läuft
+	 */
+	public synchronized Talker addRobot(TopicMap topics) {
+		for (Talker talker : talkers) {
+			if (talker.getDefaultNodeName().toString()
+					.equals(topics.getNodeName().toString())) {
+				throw new IllegalArgumentException("Es läuft bereits ein Talker "
+						+ topics.getNodeName());
+			}
+		}
+		Talker talker = new Talker(topics);
+		NodeConfiguration configuration = NodeConfiguration
+				.copyOf(baseConfiguration);
+		configuration.setNodeName(topics.getNodeName());
+		executor.execute(talker, configuration);
+		talkers.add(talker);
+		return talker;
+	}
+
+	/**
+	 * Stoppt die Motoren des Roboters und beendet seinen Talker.
+	 */
+	public synchronized void removeRobot(Talker talker) {
+		if (talkers.remove(talker)) {
+			stopMotors(talker);
+			executor.shutdownNodeMain(talker);
+		}
+	}
+
+	/**
+	 * @return alle laufenden Talker in der Reihenfolge, in der sie gestartet
+	 *         wurden
+	 */
+	public synchronized List<Talker> getRobots() {
+		return Collections.unmodifiableList(new ArrayList<Talker>(talkers));
+	}
+
+	/**
+	 * Stoppt die Motoren aller Roboter und beendet alle Talker.
+	 */
+	public synchronized void shutdown() {
+		for (Talker talker : talkers) {
+			stopMotors(talker);
+		}
+		talkers.clear();
+		executor.shutdown();
+	}
+
+	private static void stopMotors(Talker talker) {
+		// Ohne Verbindung gibt es nichts zu stoppen
+		if (talker.connectedNode != null) {
+			talker.allMotorStop();
+		}
+	}
+}
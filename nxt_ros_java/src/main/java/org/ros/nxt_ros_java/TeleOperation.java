@@ -21,27 +21,32 @@ import java.util.Scanner;
 import org.ros.nxt_ros_java.NxtJavaHandler;
 
 public class TeleOperation {
+	// So lange fährt der Roboter je Tastendruck; eine neue Taste ersetzt die
+	// laufende Bewegung, ohne dass die Eingabe wartet
+	private static final long TASTEN_DAUER = 300;
+
 	public static void main(String[] argv) throws Exception {
 		NxtJavaHandler nxth = new NxtJavaHandler(argv);
 		System.out.println("Warte auf Initialisierung ....");
 		nxth.warteAufInitialisierung();
 		System.out.println("Initialisierung abgeschlossen done");
 		
-		String linkerMotor="c";
-		String rechterMotor="b";
+		// Motor C links, Motor B rechts
+		DifferentialDrive antrieb = new DifferentialDrive(nxth.getTalkerInstance());
+		antrieb.start();
 		
 		Scanner sc = new Scanner(System.in);
 		while(true){
 			System.out.print("Steuere den Roboter mit wasd: ");
 	    	String eingabe = sc.next();
 	    	if(eingabe.equals("w") || eingabe.equals("W")){
-	    		nxth.bewegeZweiMotoren(rechterMotor,linkerMotor, 150, 1);
+	    		antrieb.setVelocity(0.2, 0, TASTEN_DAUER);
 	    	}else if(eingabe.equals("a") || eingabe.equals("A")){
-	    		nxth.bewegeMotorB(100, 1);
+	    		antrieb.setVelocity(0, Math.toRadians(90), TASTEN_DAUER);
 	    	}else if(eingabe.equals("d") || eingabe.equals("D")){
-	    		nxth.bewegeMotorC(100, 1);
+	    		antrieb.setVelocity(0, -Math.toRadians(90), TASTEN_DAUER);
 	    	}else if(eingabe.equals("s") || eingabe.equals("S")){
-	    		nxth.bewegeZweiMotoren(rechterMotor,linkerMotor, 200, -1);
+	    		antrieb.setVelocity(-0.2, 0, TASTEN_DAUER);
 			}else{
 	    		System.out.println("Ungültige Eingabe");
 	    	}
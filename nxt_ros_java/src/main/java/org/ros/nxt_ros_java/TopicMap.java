@@ -0,0 +1,134 @@
+package org.ros.nxt_ros_java;
+
+import java.util.EnumMap;
+
+import org.ros.namespace.GraphName;
+
+/**
+ * Unveränderliche Zuordnung der Topics und des Node-Namens eines
+ * {@link Talker}s. Mit einem Namensraum je Roboter können mehrere Talker in
+ * derselben JVM laufen, ohne dass sich ihre Topics oder Nodes überschneiden.
+ *
+ * Topic-Namen, die mit "/" beginnen, gelten absolut und werden nicht in den
+ * Namensraum gelegt.
+ */
+public final class TopicMap {
+
+	/**
+	 * Die Topics, die der Talker veröffentlicht oder abonniert, mit den
+	 * Namen, unter denen der Treiber sie standardmäßig führt.
+	 */
+	public enum Topic {
+		JOINT_COMMAND("joint_command"), JOINT_COMMANDS("joint_commands"), JOINT_STATE(
+				"joint_state"), TOUCH("touch_sensor"), ULTRASONIC(
+				"ultrasonic_sensor"), INTENSITY("intensity_sensor"), COLOR(
+				"color_sensor"), GYRO("gyro_sensor"), IMU("gyro_sensor_imu"), ACCELEROMETER(
+				"accelerometer_sensor");
+
+		private final String defaultName;
+
+		private Topic(String defaultName) {
+			this.defaultName = defaultName;
+		}
+
+		public String getDefaultName() {
+			return defaultName;
+		}
+	}
+
+	/**
+	 * Die Standardnamen ohne Namensraum, wie sie der Talker bisher verwendet.
+	 */
+	public static final TopicMap DEFAULT = new TopicMap("",
+			"rosjava_tutorial_pubsub/talker", defaultTopics());
+
+	private final String namespace;
+	private final String nodeName;
+	private final EnumMap<Topic, String> topics;
+
+	private TopicMap(String namespace, String nodeName,
+			EnumMap<Topic, String> topics) {
+		this.namespace = namespace;
+		this.nodeName = nodeName;
+		this.topics = topics;
+	}
+
+	private static EnumMap<Topic, String> defaultTopics() {
+		EnumMap<Topic, String> topics = new EnumMap<Topic, String>(Topic.class);
+		for (Topic topic : Topic.values()) {
+			topics.put(topic, topic.getDefaultName());
+		}
+		return topics;
+	}
+
+	/**
+	 * Liefert eine Zuordnung, die Node und relative Topics in den gegebenen
+	 * Namensraum legt, z.B. "robot1" für "robot1/touch_sensor".
+	 *
+	 * @param pNamespace
+	 *            der Namensraum oder "" für keinen
+	 */
+	public TopicMap withNamespace(String pNamespace) {
+		String trimmed = pNamespace.trim();
+		while (trimmed.endsWith("/")) {
+			trimmed = trimmed.substring(0, trimmed.length() - 1);
+		}
+		return new TopicMap(trimmed, nodeName, topics);
+	}
+
+	/**
+	 * Liefert eine Zuordnung, in der das gegebene Topic unter einem anderen
+	 * Namen geführt wird.
+	 */
+	public TopicMap withTopic(Topic topic, String name) {
+		if (name == null || name.length() == 0) {
+			throw new IllegalArgumentException("Leerer Name für " + topic);
+		}
+		EnumMap<Topic, String> next = new EnumMap<Topic, String>(topics);
+		next.put(topic, name);
+		return new TopicMap(namespace, nodeName, next);
+	}
+
+	/**
+	 * Liefert eine Zuordnung mit einem anderen Node-Namen. Er wird ebenfalls
+	 * in den Namensraum gelegt.
+	 */
+	public TopicMap withNodeName(String pNodeName) {
+		if (pNodeName == null || pNodeName.length() == 0) {
+			throw new IllegalArgumentException("Leerer Node-Name");
+		}
+		return new TopicMap(namespace, pNodeName, topics);
+	}
+
+	public String getNamespace() {
+		return namespace;
+	}
+
+	/**
+	 * @return der Name, unter dem das Topic veröffentlicht bzw. abonniert
+	 *         wird, einschließlich Namensraum
+	 */
+	public String resolve(Topic topic) {
+		return inNamespace(topics.get(topic));
+	}
+
+	/**
+	 * @return der Node-Name einschließlich Namensraum
+	 */
+	public GraphName getNodeName() {
+		return GraphName.of(inNamespace(nodeName));
+	}
+
+	private String inNamespace(String name) {
+		if (namespace.length() == 0 || name.startsWith("/")) {
+			return name;
+		}
+		return namespace + "/" + name;
+	}
+
+	@Override
+	public String toString() {
+		return "TopicMap[namespace=" + namespace + ", node=" + nodeName
+				+ ", topics=" + topics + "]";
+	}
+}
@@ -0,0 +1,131 @@
+package org.ros.nxt_ros_java;
+
+import java.util.concurrent.TimeUnit;
+
+import org.ros.nxt_ros_java.NxtJavaHandler.Farbe;
+
+/**
+ * Fährt umher, weicht Hindernissen aus und hält an, sobald der Farbsensor Blau
+ * sieht. Die drei Verhalten laufen gemeinsam in einem
+ * {@link BehaviorScheduler}, ohne eigene Threads und ohne zu blockieren.
+ */
+public class Wander {
+
+	/**
+	 * Fährt geradeaus, solange kein anderes Verhalten die Räder beansprucht.
+	 */
+	static class Cruise extends Behavior {
+
+		Cruise() {
+			super("cruise", 0);
+		}
+
+		@Override
+		protected boolean tick(long nowNanos, Output output) {
+			output.setEfforts(MotorPort.B, MotorPort.C, 0.6);
+			return true;
+		}
+	}
+
+	/**
+	 * Setzt vor einem Hindernis zurück und dreht sich weg.
+	 */
+	static class Avoid extends Behavior {
+
+		private static final long BACK_NANOS = TimeUnit.MILLISECONDS
+				.toNanos(1000);
+		private static final long TURN_NANOS = TimeUnit.MILLISECONDS
+				.toNanos(700);
+
+		private static final int IDLE = 0;
+		private static final int BACKING = 1;
+		private static final int TURNING = 2;
+
+		private final Talker talker;
+		private int state = IDLE;
+		private long stateEnd;
+
+		Avoid(Talker talker) {
+			super("avoid", 10);
+			this.talker = talker;
+		}
+
+		@Override
+		protected boolean tick(long nowNanos, Output output) {
+			switch (state) {
+			case IDLE:
+				// Vor der ersten Messung ist die Distanz 0
+				SensorSnapshot sensors = talker.snapshot();
+				if (sensors.getStamp(Sensor.RANGE).getSequence() == 0
+						|| !(sensors.getRange() < 0.4)) {
+					return true;
+				}
+				state = BACKING;
+				stateEnd = nowNanos + BACK_NANOS;
+				break;
+			case BACKING:
+				if (nowNanos - stateEnd >= 0) {
+					state = TURNING;
+					stateEnd = nowNanos + TURN_NANOS;
+				}
+				break;
+			case TURNING:
+				if (nowNanos - stateEnd >= 0) {
+					state = IDLE;
+					return true;
+				}
+				break;
+			}
+			if (state == BACKING) {
+				output.setEfforts(MotorPort.B, MotorPort.C, -0.5);
+			} else {
+				output.setEffort(MotorPort.B, 0.5);
+				output.setEffort(MotorPort.C, -0.5);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Hält an und beendet den Scheduler, sobald Blau gesehen wird.
+	 */
+	static class WatchColor extends Behavior {
+
+		private final Talker talker;
+		private final BehaviorScheduler scheduler;
+		private final Farbe farbe;
+
+		WatchColor(Talker talker, BehaviorScheduler scheduler, Farbe farbe) {
+			super("watch " + farbe, 20);
+			this.talker = talker;
+			this.scheduler = scheduler;
+			this.farbe = farbe;
+		}
+
+		@Override
+		protected boolean tick(long nowNanos, Output output) {
+			if (talker.getColor() == farbe) {
+				output.stop(MotorPort.B);
+				output.stop(MotorPort.C);
+				scheduler.stop();
+			}
+			return true;
+		}
+	}
+
+	public static void main(String[] argv) throws Exception {
+		NxtJavaHandler nxth = new NxtJavaHandler(argv);
+		System.out.println("Warte auf Initialisierung ....");
+		nxth.warteAufInitialisierung();
+		System.out.println("Initialisierung abgeschlossen done");
+		Talker t = nxth.getTalkerInstance();
+		BehaviorScheduler scheduler = new BehaviorScheduler(t);
+		scheduler.add(new Cruise());
+		scheduler.add(new Avoid(t));
+		scheduler.add(new WatchColor(t, scheduler, Farbe.BLAU));
+		scheduler.start();
+		scheduler.awaitFinished(0);
+		System.out.println("Blau gesehen!");
+		System.out.println(scheduler.getLoop());
+	}
+}